@@ -0,0 +1,34 @@
+/**
+ * A Benchmark is one operation whose speed is measured by the
+ * BenchmarkRunner. Benchmarks run headless, so they never need the
+ * GameEngine window.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public interface Benchmark {
+
+	/**
+	 * This accessor retrieves the name that this benchmark is reported and
+	 * selected by.
+	 *
+	 * @return the name of this benchmark, including its parameters
+	 */
+	String getName();
+
+	/**
+	 * Prepares everything the measured operation needs. This is called once
+	 * before any operations are run, and is not measured.
+	 *
+	 * @throws Exception when the benchmark can't be prepared
+	 */
+	void setup() throws Exception;
+
+	/**
+	 * Runs the measured operation once.
+	 *
+	 * @return any value computed by the operation, so that the work can't
+	 * be optimized away
+	 * @throws Exception when the operation fails
+	 */
+	long run() throws Exception;
+}
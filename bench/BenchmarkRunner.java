@@ -0,0 +1,122 @@
+import java.util.ArrayList;
+
+/**
+ * The BenchmarkRunner class measures how long the game's hot paths take.
+ * Each benchmark is warmed up first so that the JIT compiler has finished
+ * with it, then run for several timed iterations. The average time per
+ * operation and its standard deviation over the iterations are printed.
+ * Every benchmark uses fixed random seeds, so the work it measures is the
+ * same from run to run.
+ *
+ * Usage: java BenchmarkRunner [nameFilter]
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class BenchmarkRunner {
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASURED_ITERATIONS = 10;
+	private static final long ITERATION_NANOS = 200000000L;	// 200ms
+
+	// values returned by the benchmarks, so that their work is kept
+	private static long sink;
+
+	/**
+	 * Lists every benchmark, with each of its parameters.
+	 *
+	 * @return the benchmarks in the order they are run
+	 */
+	public static ArrayList<Benchmark> allBenchmarks() {
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		int[] counts = {6, 100, 1000, 10000};
+		for (int i = 0; i < counts.length; i++) {
+			benchmarks.add(new LevelUpdateBenchmark(counts[i]));
+		}
+		for (int i = 0; i < counts.length; i++) {
+			benchmarks.add(new PlanetPlacementBenchmark(counts[i]));
+		}
+		benchmarks.add(new LevelLoadBenchmark("small", 0, false, false));
+		benchmarks.add(new LevelLoadBenchmark("huge", 200000, false, false));
+		benchmarks.add(new LevelLoadBenchmark("huge", 200000, true, false));
+		benchmarks.add(new LevelLoadBenchmark("small", 0, false, true));
+		benchmarks.add(new LevelLoadBenchmark("huge", 200000, false, true));
+		for (int i = 1; i < counts.length; i++) {
+			benchmarks.add(new CollisionBenchmark(counts[i], true));
+			benchmarks.add(new CollisionBenchmark(counts[i], false));
+		}
+		for (int i = 0; i < counts.length; i++) {
+			benchmarks.add(new LevelSnapshotBenchmark(counts[i]));
+		}
+		return benchmarks;
+	}
+
+	/**
+	 * Measures one benchmark and prints the result.
+	 *
+	 * @param benchmark is the benchmark to measure
+	 * @return void
+	 * @throws Exception when the benchmark fails
+	 */
+	public static void measure(Benchmark benchmark) throws Exception {
+		benchmark.setup();
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(benchmark);
+		}
+		double[] nanosPerOperation = new double[MEASURED_ITERATIONS];
+		double sum = 0;
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			nanosPerOperation[i] = iterate(benchmark);
+			sum += nanosPerOperation[i];
+		}
+		double mean = sum / MEASURED_ITERATIONS;
+		double squares = 0;
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			squares += (nanosPerOperation[i] - mean)
+					* (nanosPerOperation[i] - mean);
+		}
+		double deviation = Math.sqrt(squares / (MEASURED_ITERATIONS - 1));
+		System.out.println(String.format("%-40s %14.1f ns/op  +- %10.1f",
+				benchmark.getName(), mean, deviation));
+	}
+
+	/**
+	 * Runs a benchmark's operation over and over for one iteration.
+	 *
+	 * @param benchmark is the benchmark to run
+	 * @return the average number of nanoseconds each operation took
+	 * @throws Exception when the benchmark fails
+	 */
+	private static double iterate(Benchmark benchmark) throws Exception {
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			sink += benchmark.run();
+			operations++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < ITERATION_NANOS);
+		return (double) elapsed / operations;
+	}
+
+	/**
+	 * Measures every benchmark whose name contains the filter given on the
+	 * command line, or every benchmark when no filter is given.
+	 *
+	 * @param args is an optional filter for the benchmark names
+	 * @throws Exception when a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		String filter = args.length > 0 ? args[0] : "";
+		ArrayList<Benchmark> benchmarks = allBenchmarks();
+		for (int i = 0; i < benchmarks.size(); i++) {
+			if (benchmarks.get(i).getName().contains(filter)) {
+				measure(benchmarks.get(i));
+			}
+		}
+		if (sink == 42) {
+			System.out.println();	// keeps the sink from being optimized away
+		}
+	}
+}
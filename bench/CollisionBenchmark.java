@@ -0,0 +1,83 @@
+import java.util.Random;
+
+/**
+ * Measures finding every planet that a taxi collides with, either through
+ * the level's SpatialGrid or by checking every planet.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class CollisionBenchmark implements Benchmark {
+
+	private static final long SEED = 1;
+	private static final int POSITIONS = 1024;
+	private static final float CELL_SIZE = 64;
+
+	// initialized variables
+	private int planetCount;
+	private boolean isUsingGrid;
+	private EntityStore planets;
+	private SpatialGrid grid;
+	private Body taxi;
+	private float[] taxiX = new float[POSITIONS];
+	private float[] taxiY = new float[POSITIONS];
+	private int next;
+	private IntList nearby = new IntList();
+
+	/**
+	 * @param planetCount is the number of planets to check against
+	 * @param isUsingGrid is true to use a SpatialGrid, and false to check
+	 * every planet
+	 */
+	public CollisionBenchmark(int planetCount, boolean isUsingGrid) {
+		this.planetCount = planetCount;
+		this.isUsingGrid = isUsingGrid;
+	}
+
+	public String getName() {
+		return "Collision " + (isUsingGrid ? "grid" : "all") + " planets="
+				+ planetCount;
+	}
+
+	public void setup() {
+		Random rng = new Random(SEED);
+		planets = new EntityStore(planetCount);
+		grid = new SpatialGrid(Level.HEADLESS_WIDTH, Level.HEADLESS_HEIGHT,
+				CELL_SIZE);
+		for (int i = 0; i < planetCount; i++) {
+			int slot = Planet.add(planets, rng.nextFloat() * Level.HEADLESS_WIDTH,
+					rng.nextFloat() * Level.HEADLESS_HEIGHT);
+			grid.add(slot, planets.x[slot], planets.y[slot]);
+		}
+		for (int i = 0; i < POSITIONS; i++) {
+			taxiX[i] = rng.nextFloat() * Level.HEADLESS_WIDTH;
+			taxiY[i] = rng.nextFloat() * Level.HEADLESS_HEIGHT;
+		}
+		taxi = new Body(Appearance.TAXI);
+	}
+
+	public long run() {
+		next = (next + 1) % POSITIONS;
+		taxi.setPosition(taxiX[next], taxiY[next]);
+		long hits = 0;
+		if (isUsingGrid) {
+			nearby.clear();
+			grid.query(taxi.getX(), taxi.getY(), (taxi.getSize()
+					+ EntityStore.DESTINATION_SIZE) / 2, nearby);
+			for (int i = 0; i < nearby.size(); i++) {
+				int slot = nearby.get(i);
+				if (taxi.isCollidingWith(planets.x[slot], planets.y[slot],
+						planets.sizeOf(slot))) {
+					hits++;
+				}
+			}
+		} else {
+			for (int i = 0; i < planets.size(); i++) {
+				if (taxi.isCollidingWith(planets.x[i], planets.y[i],
+						planets.sizeOf(i))) {
+					hits++;
+				}
+			}
+		}
+		return hits;
+	}
+}
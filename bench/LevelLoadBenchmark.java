@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures building a Level from a custom level file. The small level is
+ * levels/level01.wst, and the huge level is generated with the specified
+ * number of lines in a temporary file (and optionally compiled to .wstb).
+ * The level is either read every time, or copied from the template that
+ * the LevelTemplateCache keeps after the first time.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelLoadBenchmark implements Benchmark {
+
+	private static final long SEED = 1;
+	private static final String[] TYPES = {"GAS", "PLANET", "WARP_STAR"};
+
+	// initialized variables
+	private String size;
+	private int lines;
+	private boolean isBinary;
+	private boolean isCached;
+	private String levelFilename;
+
+	/**
+	 * @param size is the name of the level size, used in the report
+	 * @param lines is the number of lines to generate, or 0 to load
+	 * levels/level01.wst
+	 * @param isBinary is true to load the level compiled to .wstb
+	 * @param isCached is true to copy the level from its template
+	 */
+	public LevelLoadBenchmark(String size, int lines, boolean isBinary,
+			boolean isCached) {
+		this.size = size;
+		this.lines = lines;
+		this.isBinary = isBinary;
+		this.isCached = isCached;
+	}
+
+	public String getName() {
+		return "Level load " + size + (isBinary ? " .wstb" : " .wst")
+				+ (isCached ? " template" : "");
+	}
+
+	public void setup() throws IOException {
+		if (lines == 0) {
+			levelFilename = "levels/level01.wst";
+		} else {
+			File file = File.createTempFile("huge", ".wst");
+			file.deleteOnExit();
+			Random rng = new Random(SEED);
+			FileWriter output = new FileWriter(file);
+			try {
+				output.write("TAXI @ 400.0, 300.0\n");
+				for (int i = 1; i < lines; i++) {
+					output.write(TYPES[rng.nextInt(TYPES.length)] + " @ "
+							+ rng.nextInt(Level.HEADLESS_WIDTH) + "."
+							+ rng.nextInt(10) + ", "
+							+ rng.nextInt(Level.HEADLESS_HEIGHT) + "."
+							+ rng.nextInt(10) + "\n");
+				}
+			} finally {
+				output.close();
+			}
+			levelFilename = file.getPath();
+		}
+		if (isBinary) {
+			String binaryFilename = levelFilename.replace(".wst", "")
+					+ BinaryLevel.EXTENSION;
+			BinaryLevel.convert(levelFilename, binaryFilename);
+			new File(binaryFilename).deleteOnExit();
+			levelFilename = binaryFilename;
+		}
+	}
+
+	public long run() {
+		if (!isCached) {
+			LevelTemplateCache.clear();
+		}
+		return new Level(new Random(SEED), levelFilename, true).planets.size();
+	}
+}
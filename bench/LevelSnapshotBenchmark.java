@@ -0,0 +1,43 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Measures saving a snapshot of a random level with the specified number
+ * of each type of object, and restoring it again, into a buffer that is
+ * reused by every run.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelSnapshotBenchmark implements Benchmark {
+
+	private static final long SEED = 1;
+
+	// initialized variables
+	private int objectCount;
+	private Level level;
+	private ByteBuffer buffer;
+
+	/**
+	 * @param objectCount is the number of each type of object in the level
+	 */
+	public LevelSnapshotBenchmark(int objectCount) {
+		this.objectCount = objectCount;
+	}
+
+	public String getName() {
+		return "Level snapshot+restore " + objectCount;
+	}
+
+	public void setup() {
+		level = new Level(new Random(SEED), objectCount, true);
+		buffer = ByteBuffer.allocate(level.getSnapshotSize());
+	}
+
+	public long run() {
+		buffer.clear();
+		level.snapshot(buffer);
+		buffer.flip();
+		level.restore(buffer);
+		return buffer.position();
+	}
+}
@@ -0,0 +1,36 @@
+import java.util.Random;
+
+/**
+ * Measures one headless Level.update() of a random level with the
+ * specified number of warp stars, gas clouds and planets. Planets stop
+ * being added once the screen is full.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelUpdateBenchmark implements Benchmark {
+
+	private static final long SEED = 1;
+
+	// initialized variables
+	private int objectCount;
+	private Level level;
+
+	/**
+	 * @param objectCount is the number of each type of object in the level
+	 */
+	public LevelUpdateBenchmark(int objectCount) {
+		this.objectCount = objectCount;
+	}
+
+	public String getName() {
+		return "Level.update objects=" + objectCount;
+	}
+
+	public void setup() {
+		level = new Level(new Random(SEED), objectCount, true);
+	}
+
+	public long run() {
+		return level.update(HeadlessRunner.FRAME_TIME).length();
+	}
+}
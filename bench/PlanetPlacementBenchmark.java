@@ -0,0 +1,38 @@
+import java.util.Random;
+
+/**
+ * Measures placing the specified number of random planets on an empty
+ * 800x600 screen, the way loadRandomLevel() does.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class PlanetPlacementBenchmark implements Benchmark {
+
+	private static final long SEED = 1;
+
+	// initialized variables
+	private int planetCount;
+
+	/**
+	 * @param planetCount is the number of planets to try to place
+	 */
+	public PlanetPlacementBenchmark(int planetCount) {
+		this.planetCount = planetCount;
+	}
+
+	public String getName() {
+		return "PlanetPlacer.place planets=" + planetCount;
+	}
+
+	public void setup() {
+		// every operation starts from an empty screen
+	}
+
+	public long run() {
+		EntityStore planets = new EntityStore();
+		PlanetPlacer placer = new PlanetPlacer(new Random(SEED), planets,
+				Level.HEADLESS_WIDTH, Level.HEADLESS_HEIGHT,
+				PlanetPlacer.DEFAULT_ATTEMPTS);
+		return placer.place(planetCount);
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * The Appearance class is the one shared description of each image in the
+ * images folder: its name, its collision size, the number that a
+ * RenderQueue batches it by, and a single Graphic that draws it. There is
+ * exactly one Appearance for each image, made when this class is loaded, so
+ * objects only keep a reference to theirs, and switching images (like a
+ * planet becoming the destination, or the taxi exploding) just swaps that
+ * reference. The Graphic is only created, and its image only decoded, the
+ * first time the appearance is drawn, so headless levels never create one.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public final class Appearance {
+
+	// every appearance, at the index of its RenderQueue number
+	private static final Appearance[] ALL = new Appearance[6];
+
+	public static final Appearance TAXI =
+			new Appearance(RenderQueue.TAXI, "TAXI");
+	public static final Appearance EXPLOSION =
+			new Appearance(RenderQueue.EXPLOSION, "EXPLOSION");
+	public static final Appearance GAS = new Appearance(RenderQueue.GAS, "GAS");
+	public static final Appearance WARP_STAR =
+			new Appearance(RenderQueue.WARP_STAR, "WARP_STAR");
+	public static final Appearance PLANET =
+			new Appearance(RenderQueue.PLANET, "PLANET");
+	public static final Appearance DESTINATION =
+			new Appearance(RenderQueue.DESTINATION, "DESTINATION");
+
+	// the number of appearances
+	public static final int COUNT = ALL.length;
+
+	// initialized variables
+	private final int id;
+	private final String name;
+	private final float size;
+	private final float drawRadius;	// how far the turned image can reach
+	private Graphic graphic;	// only created when this is first drawn
+
+	/**
+	 * Initializes the appearance of one image, and registers it.
+	 *
+	 * @param id is the RenderQueue number of the appearance, like
+	 * RenderQueue.GAS
+	 * @param name is the upper case name of the image in the images folder
+	 */
+	private Appearance(int id, String name) {
+		this.id = id;
+		this.name = name;
+		this.size = Body.sizeOf(name);
+		this.drawRadius = Body.drawRadiusOf(name);
+		ALL[id] = this;
+	}
+
+	/**
+	 * Finds the appearance of an image by its name.
+	 *
+	 * @param name is the name of the image, in any case
+	 * @return the appearance of that image
+	 * @throws IllegalArgumentException when no appearance has that name
+	 */
+	public static Appearance of(String name) {
+		for (int i = 0; i < ALL.length; i++) {
+			if (ALL[i].name.equalsIgnoreCase(name)) {
+				return ALL[i];
+			}
+		}
+		throw new IllegalArgumentException("no appearance named " + name);
+	}
+
+	/**
+	 * Finds the appearance with a RenderQueue number.
+	 *
+	 * @param id is the number of the appearance, like RenderQueue.GAS
+	 * @return the appearance with that number
+	 */
+	public static Appearance get(int id) {
+		return ALL[id];
+	}
+
+	/**
+	 * This accessor retrieves the number that a RenderQueue batches this
+	 * appearance by.
+	 *
+	 * @return the number, like RenderQueue.GAS
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * This accessor retrieves the name of this appearance's image.
+	 *
+	 * @return the upper case name, like "GAS"
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * This accessor retrieves the collision diameter of this appearance.
+	 *
+	 * @return the size in pixels
+	 */
+	public float getSize() {
+		return size;
+	}
+
+	/**
+	 * This accessor retrieves the farthest that any corner of this
+	 * appearance's image reaches from its center, however it is turned.
+	 *
+	 * @return the distance in pixels, which is half the image's diagonal
+	 */
+	public float getDrawRadius() {
+		return drawRadius;
+	}
+
+	/**
+	 * Finds the single Graphic that every object with this appearance is
+	 * drawn with, one after the other, creating it the first time. This
+	 * must only be called while the GameEngine is running.
+	 *
+	 * @return the shared Graphic of this appearance
+	 */
+	public Graphic getGraphic() {
+		if (graphic == null) {
+			graphic = new Graphic(name);
+		}
+		return graphic;
+	}
+
+	/**
+	 * Draws one object with this appearance. This must only be called while
+	 * the GameEngine is running.
+	 *
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 * @param direction is the orientation of the object, measured like
+	 * Graphic.getDirection()
+	 * @return void
+	 */
+	public void draw(float x, float y, float direction) {
+		Graphic graphic = getGraphic();
+		graphic.setPosition(x, y);
+		graphic.setDirection(direction);
+		graphic.draw();
+	}
+
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,632 @@
+import java.util.ArrayList;
+
+/**
+ * The AutoPilot class is a Pilot that flies the taxi to each destination
+ * planet in turn, by following the cheapest route that the LevelSolver
+ * finds from where the taxi is. A route chains warps from star to star,
+ * drops out of warp speed close to a planet or gas cloud, and finishes each
+ * trip with the thrusters, which burn one unit of fuel for every pixel they
+ * move the taxi. The thrusters follow the straight line that the solver
+ * checked for planets, one thruster step at a time.
+ * <br/><br/>
+ * Whenever the taxi has less fuel than the route expected (like when a gas
+ * cloud it was heading for was taken by another taxi), ends up somewhere
+ * other than the route expected, or is about to run into a planet, it drops
+ * out of warp and solves the level again from there. When no route is left,
+ * it stops and waits instead of burning fuel on a trip it can't finish.
+ * Each solve happens within a single tick, so it only searches MAX_STATES
+ * states. One takes about 40 ms on a level with 6 of each object, and
+ * about 80 ms with 10 of each, mostly to build the solver's graph.
+ * <br/><br/>
+ * An AutoPilot remembers its route, so each taxi needs its own AutoPilot.
+ * It only reads the level, so the AutoPilots of many taxis in one level
+ * (see Fleet) can steer at the same time on different threads.
+ *
+ * Bugs: It wins 1966 of the 2000 random levels from seed 0 (98%). The other
+ * 34 are generated with the taxi on a planet, so it crashes on the first or
+ * second tick, before it can do anything.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class AutoPilot implements Pilot {
+
+	// how far ahead of the taxi to check for planets when stopping
+	private static final float LOOKAHEAD = 4;
+	// ticks ahead to check for planets while travelling at warp
+	private static final int WARP_LOOKAHEAD_TICKS = 3;
+	// states each solve searches before giving up, which is kept small
+	// since the level is solved again within a single tick
+	private static final int MAX_STATES = 20000;
+	// fuel that the route must always leave in the tank
+	private static final float FUEL_RESERVE = 1;
+	// fuel the taxi can be behind its route before it is solved again
+	private static final float FUEL_TOLERANCE = 1;
+	// pixels the taxi can be off its route before it is solved again
+	private static final float MAX_DEVIATION = 3;
+	// points around a warp star that can be clicked when its center is
+	// covered by another star, on rings at these fractions of its radius
+	private static final int CLICK_POINTS = 8;
+	private static final float[] CLICK_RINGS = {0.5f, 0.9f};
+
+	// what the taxi is doing in the current step of its route
+	private static final byte STARTING = 0;
+	private static final byte WARPING = 1;
+	private static final byte THRUSTING = 2;
+	private static final byte ARRIVING = 3;
+
+	// initialized variables
+	private int sidestep = 1;	// which way to step around planets (+1 or -1)
+	private ArrayList<LevelSolver.Step> steps;	// the route, or null
+	private int stepIndex;		// the step of the route being followed
+	private byte phase;			// STARTING, WARPING, THRUSTING or ARRIVING
+	private boolean isHopeless;	// true when the level has no route left
+	private float solvedX;		// where the taxi was when the route was
+	private float solvedY;		// solved
+	private float warpLeft;		// pixels left to travel at warp speed
+	private float legX;			// the whole move of the current thrust
+	private float legY;
+	private Taxi taxi;			// the taxi being steered
+	private int destination;	// the slot of that taxi's destination planet
+
+	/**
+	 * Chooses the controls for the next tick.
+	 *
+	 * @param level is the level being steered
+	 * @return the keys and mouse to use for the next tick
+	 */
+	public InputSnapshot steer(Level level) {
+		return steer(level, level.getTaxi(), level.getDestinationPlanetIndex());
+	}
+
+	/**
+	 * Chooses the controls of one taxi for the next tick, which can be a
+	 * taxi that the level doesn't know about.
+	 *
+	 * @param level is the level the taxi is in
+	 * @param taxi is the taxi being steered
+	 * @param destination is the slot of the taxi's destination planet
+	 * @return the keys and mouse to use for the next tick
+	 */
+	public InputSnapshot steer(Level level, Taxi taxi, int destination) {
+		this.taxi = taxi;
+		this.destination = destination;
+		if (taxi.hasCrashed() || taxi.getFuel() <= 0
+				|| destination >= level.planets.size()) {
+			return InputSnapshot.NONE;
+		}
+		if (steps == null && !isHopeless) {
+			// a route can only be solved from a standstill
+			if (taxi.isTravellingAtWarp()) {
+				return stop(level);
+			}
+			solve(level);
+		}
+		if (steps == null) {
+			return InputSnapshot.NONE;
+		}
+		while (stepIndex < steps.size()) {
+			LevelSolver.Step step = steps.get(stepIndex);
+			InputSnapshot input;
+			if (phase == STARTING) {
+				input = startStep(level, step);
+			} else if (phase == WARPING) {
+				input = steerAtWarp(level, step);
+			} else {
+				input = steerThrusters(level, step);
+			}
+			if (input != null) {
+				return input;
+			}
+			// the step is done, so the next one starts this tick
+			stepIndex++;
+			phase = STARTING;
+		}
+		return InputSnapshot.NONE;
+	}
+
+	/**
+	 * Solves the level from where the taxi is now, and starts following the
+	 * route that was found.
+	 *
+	 * @param level is the level being steered
+	 * @return void
+	 */
+	private void solve(Level level) {
+		stepIndex = 0;
+		phase = STARTING;
+		solvedX = taxi.body.getX();
+		solvedY = taxi.body.getY();
+		steps = null;
+		if (LevelSolver.canSolve(level)) {
+			LevelSolver.Route route = new LevelSolver(level, taxi, destination)
+					.solve(MAX_STATES, FUEL_RESERVE);
+			if (route.isWinnable()) {
+				steps = route.getSteps();
+			}
+		}
+		// nothing changes while the taxi waits, so neither an unwinnable
+		// level nor one too big to search in time is solved again
+		isHopeless = steps == null;
+	}
+
+	/**
+	 * Gives up on the current route, so that the level is solved again once
+	 * the taxi has stopped. A route given up on before the taxi has moved
+	 * would only be found again, so then the level is hopeless.
+	 *
+	 * @param level is the level being steered
+	 * @return the keys and mouse to use for the next tick
+	 */
+	private InputSnapshot abandon(Level level) {
+		steps = null;
+		if (taxi.isTravellingAtWarp()) {
+			return stop(level);
+		}
+		isHopeless = taxi.body.getX() == solvedX
+				&& taxi.body.getY() == solvedY;
+		return InputSnapshot.NONE;
+	}
+
+	/**
+	 * Starts a step of the route by clicking its warp star, or by thrusting
+	 * when it has none.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step to start
+	 * @return the keys and mouse to use for the next tick
+	 */
+	private InputSnapshot startStep(Level level, LevelSolver.Step step) {
+		if (taxi.getFuel() < step.getFuel() - FUEL_TOLERANCE
+				|| isOffRoute(level, step.getFromX(), step.getFromY())) {
+			return abandon(level);
+		}
+		if (step.getStar() < 0) {
+			return startThrusters(level, step);
+		}
+		if (isWarpBlocked(level, step)) {
+			return abandon(level);
+		}
+		phase = WARPING;
+		warpLeft = step.getWarpLength();
+		InputSnapshot click = click(level, step.getStar());
+		return click != null ? click : abandon(level);
+	}
+
+	/**
+	 * Determines whether the warp of a step runs into a planet when it
+	 * starts from where the taxi really is. The route starts each warp from
+	 * the center of a star, but a taxi passing through a star can be a
+	 * pixel away from it, which turns a long warp aside by several pixels.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step whose warp is about to start
+	 * @return true when the warp would crash, otherwise false
+	 */
+	private boolean isWarpBlocked(Level level, LevelSolver.Step step) {
+		float x = nextX();
+		float y = nextY();
+		float dx = level.warpStars.x[step.getStar()] - x;
+		float dy = level.warpStars.y[step.getStar()] - y;
+		float distance = (float) Math.sqrt(dx * dx + dy * dy);
+		if (distance == 0) {
+			return false;
+		}
+		float warpStep = taxi.getWarpSpeed() * Level.TICK_TIME;
+		for (float along = warpStep;
+				along < step.getWarpLength() + warpStep / 2;
+				along += warpStep) {
+			if (isHittingPlanet(level, x + dx / distance * along,
+					y + dy / distance * along, true)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the input that clicks a warp star. A star that is partly
+	 * covered by stars drawn on top of it is clicked where it can still be
+	 * seen, since a click always picks the star on top.
+	 *
+	 * @param level is the level the star is in
+	 * @param star is the slot of the warp star
+	 * @return the input clicking that star, or null when it is covered
+	 * everywhere that is tried, so it can't be clicked
+	 */
+	static InputSnapshot click(Level level, int star) {
+		EntityStore warpStars = level.warpStars;
+		float radius = EntityStore.WARP_STAR_SIZE / 2;
+		float x = warpStars.x[star];
+		float y = warpStars.y[star];
+		// the center first, then points around it
+		for (int i = 0; i <= CLICK_POINTS * CLICK_RINGS.length; i++) {
+			float ring = i == 0 ? 0 : CLICK_RINGS[(i - 1) / CLICK_POINTS];
+			double angle = 2 * Math.PI * i / CLICK_POINTS;
+			float pointX = x + (float) Math.cos(angle) * radius * ring;
+			float pointY = y + (float) Math.sin(angle) * radius * ring;
+			boolean isCovered = false;
+			for (int j = star + 1; j < warpStars.size() && !isCovered; j++) {
+				isCovered = WarpStar.isCoveringPosition(warpStars, j, pointX,
+						pointY);
+			}
+			if (!isCovered) {
+				return new InputSnapshot(0, InputSnapshot.Key.MOUSE.bit(),
+						pointX, pointY);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keeps travelling at warp speed until the end of the step's warp, which
+	 * is reached during the tick that brings the taxi closest to it, and
+	 * checks that no planet is ahead.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step being followed
+	 * @return the keys and mouse to use for the next tick, or null when the
+	 * step is done
+	 */
+	private InputSnapshot steerAtWarp(Level level, LevelSolver.Step step) {
+		if (!taxi.isTravellingAtWarp()) {
+			return abandon(level);	// the click didn't start a warp
+		}
+		float x = taxi.body.getX();
+		float y = taxi.body.getY();
+		float directionX = taxi.body.getDirectionX();
+		float directionY = taxi.body.getDirectionY();
+		float warpStep = taxi.getWarpSpeed() * Level.TICK_TIME;
+		// the ticks ahead that it will still be at warp speed for
+		for (int i = 1; i <= WARP_LOOKAHEAD_TICKS
+				&& (i == 1 || (i - 1) * warpStep < warpLeft - warpStep / 2);
+				i++) {
+			if (isHittingPlanet(level, x + directionX * warpStep * i,
+					y + directionY * warpStep * i, true)) {
+				return abandon(level);
+			}
+		}
+		warpLeft -= warpStep;
+		if (warpLeft > warpStep / 2) {
+			return InputSnapshot.NONE;
+		}
+		if (!step.isThrusting()) {
+			return null;	// through the star, toward the next one
+		}
+		return startThrusters(level, step);
+	}
+
+	/**
+	 * Starts the thrust of a step, which also drops the taxi out of warp
+	 * speed, once the taxi is where the step expects it to be.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step being followed
+	 * @return the keys and mouse to use for the next tick, or null when the
+	 * step is done
+	 */
+	private InputSnapshot startThrusters(Level level, LevelSolver.Step step) {
+		if (isOffRoute(level, step.getStartX(), step.getStartY())) {
+			return abandon(level);
+		}
+		float x = nextX();
+		float y = nextY();
+		legX = wrap(step.getEndX() - x, level.getWidth());
+		legY = wrap(step.getEndY() - y, level.getHeight());
+		phase = THRUSTING;
+		return thrustToward(level, step, x, y);
+	}
+
+	/**
+	 * Keeps thrusting along a step until it has landed on its planet or
+	 * collected its gas cloud, or has stopped at the end of its line when it
+	 * has no target.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step being followed
+	 * @return the keys and mouse to use for the next tick, or null when the
+	 * step is done
+	 */
+	private InputSnapshot steerThrusters(Level level, LevelSolver.Step step) {
+		if (step.getPlanet() >= 0 ? destination > step.getPlanet()
+				: step.hasTarget() && !hasGasCloudAt(level, step.getTargetX(),
+						step.getTargetY())) {
+			return null;
+		}
+		return thrustToward(level, step, taxi.body.getX(), taxi.body.getY());
+	}
+
+	/**
+	 * Chooses the thruster that keeps the taxi closest to the straight line
+	 * of a step's thrust, or that moves it into the target once it has
+	 * reached the end of that line.
+	 *
+	 * @param level is the level being steered
+	 * @param step is the step being followed
+	 * @param x is the horizontal position of the taxi
+	 * @param y is the vertical position of the taxi
+	 * @return the keys and mouse to use for the next tick, or null when a
+	 * step without a target has reached the end of its line
+	 */
+	private InputSnapshot thrustToward(Level level, LevelSolver.Step step,
+			float x, float y) {
+		float dx = wrap(step.getEndX() - x, level.getWidth());
+		float dy = wrap(step.getEndY() - y, level.getHeight());
+		// a little over half a thruster step, since the end of the line can
+		// be halfway between two positions that the taxi can reach, and then
+		// rounding can leave both of them just over half a step away
+		float half = taxi.getThrusterSpeed() * Level.TICK_TIME * 0.55f;
+		// objects across an edge of the screen are only touched once the
+		// taxi wraps around it, so it goes on until it touches the target
+		if (phase == ARRIVING || Math.abs(dx) <= half && Math.abs(dy) <= half) {
+			if (!step.hasTarget()) {
+				return null;	// stopped beside a planet
+			}
+			phase = ARRIVING;
+			return arrive(level, x, y,
+					wrap(step.getTargetX() - x, level.getWidth()),
+					wrap(step.getTargetY() - y, level.getHeight()));
+		}
+		// the axis that is furthest behind the line
+		boolean isHorizontal;
+		if (Math.abs(dx) <= half) {
+			isHorizontal = false;
+		} else if (Math.abs(dy) <= half) {
+			isHorizontal = true;
+		} else {
+			isHorizontal = Math.abs(dx * legY) >= Math.abs(dy * legX);
+		}
+		return thrust(thrusterFor(isHorizontal, isHorizontal ? dx : dy));
+	}
+
+	/**
+	 * Moves the taxi the last pixels from the end of a step's line into its
+	 * target, straight toward the target's center. The route wasn't checked
+	 * past the end of its line, so the level is solved again instead when
+	 * that would run into a planet.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal position of the taxi
+	 * @param y is the vertical position of the taxi
+	 * @param dx is the horizontal distance from the taxi to the target
+	 * @param dy is the vertical distance from the taxi to the target
+	 * @return the keys and mouse to use for the next tick
+	 */
+	private InputSnapshot arrive(Level level, float x, float y, float dx,
+			float dy) {
+		float thrustStep = taxi.getThrusterSpeed() * Level.TICK_TIME;
+		// along the farther axis first, then the other one
+		boolean isHorizontal = Math.abs(dx) >= Math.abs(dy);
+		for (int i = 0; i < 2; i++) {
+			float distance = isHorizontal ? dx : dy;
+			InputSnapshot.Key thruster = thrusterFor(isHorizontal, distance);
+			if (distance != 0 && isSafe(level, x, y, thruster, thrustStep)) {
+				return thrust(thruster);
+			}
+			isHorizontal = !isHorizontal;
+		}
+		return abandon(level);
+	}
+
+	/**
+	 * Determines whether the taxi will be too far from where its route
+	 * expects it to be after this tick's move at warp speed, if it makes
+	 * one.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal position that the route expects
+	 * @param y is the vertical position that the route expects
+	 * @return true when the taxi is too far away, otherwise false
+	 */
+	private boolean isOffRoute(Level level, float x, float y) {
+		float dx = wrap(nextX() - x, level.getWidth());
+		float dy = wrap(nextY() - y, level.getHeight());
+		return dx * dx + dy * dy > MAX_DEVIATION * MAX_DEVIATION;
+	}
+
+	/**
+	 * Finds where the taxi will be once this tick's move at warp speed is
+	 * done, which happens before a thruster or a click changes it.
+	 *
+	 * @return the horizontal position
+	 */
+	private float nextX() {
+		if (!taxi.isTravellingAtWarp()) {
+			return taxi.body.getX();
+		}
+		return taxi.body.getX() + taxi.body.getDirectionX()
+				* taxi.getWarpSpeed() * Level.TICK_TIME;
+	}
+
+	private float nextY() {
+		if (!taxi.isTravellingAtWarp()) {
+			return taxi.body.getY();
+		}
+		return taxi.body.getY() + taxi.body.getDirectionY()
+				* taxi.getWarpSpeed() * Level.TICK_TIME;
+	}
+
+	/**
+	 * Drops the taxi out of warp speed, with a thruster that pushes against
+	 * the way it is going.
+	 *
+	 * @param level is the level being steered
+	 * @return the keys and mouse to use for the next tick
+	 */
+	private InputSnapshot stop(Level level) {
+		return thrust(chooseThruster(level, taxi.body.getX(), taxi.body.getY(),
+				-taxi.body.getDirectionX(), -taxi.body.getDirectionY()));
+	}
+
+	/**
+	 * Creates the input that holds a thruster's key.
+	 *
+	 * @param thruster is the key of the thruster, or null for none
+	 * @return the input holding that key
+	 */
+	private static InputSnapshot thrust(InputSnapshot.Key thruster) {
+		if (thruster == null) {
+			return InputSnapshot.NONE;
+		}
+		return new InputSnapshot(thruster.bit(), 0, 0, 0);
+	}
+
+	/**
+	 * Chooses a thruster that moves the taxi toward the target without
+	 * flying into a planet.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal position of the taxi
+	 * @param y is the vertical position of the taxi
+	 * @param dx is the horizontal distance from the taxi to the target
+	 * @param dy is the vertical distance from the taxi to the target
+	 * @return the key of the chosen thruster, or null for none
+	 */
+	private InputSnapshot.Key chooseThruster(Level level, float x, float y,
+			float dx, float dy) {
+		boolean isHorizontal = Math.abs(dx) >= Math.abs(dy);
+		float along = isHorizontal ? dx : dy;
+		float across = isHorizontal ? dy : dx;
+
+		// straight toward the target along its farther axis
+		InputSnapshot.Key thruster = thrusterFor(isHorizontal, along);
+		if (isSafe(level, x, y, thruster, LOOKAHEAD)) {
+			return thruster;
+		}
+		// otherwise toward the target along the other axis, if that helps
+		if (across != 0) {
+			thruster = thrusterFor(!isHorizontal, across);
+			if (isSafe(level, x, y, thruster, LOOKAHEAD)) {
+				return thruster;
+			}
+		}
+		// otherwise sideways around whatever is in the way
+		thruster = thrusterFor(!isHorizontal, sidestep);
+		if (isSafe(level, x, y, thruster, LOOKAHEAD)) {
+			return thruster;
+		}
+		sidestep = -sidestep;
+		thruster = thrusterFor(!isHorizontal, sidestep);
+		if (isSafe(level, x, y, thruster, LOOKAHEAD)) {
+			return thruster;
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the thruster that moves the taxi along one axis.
+	 *
+	 * @param isHorizontal is true for the horizontal axis
+	 * @param distance is positive to move right or down, and negative to move
+	 * left or up
+	 * @return the key of that thruster
+	 */
+	private static InputSnapshot.Key thrusterFor(boolean isHorizontal,
+			float distance) {
+		if (isHorizontal) {
+			return distance >= 0 ? InputSnapshot.Key.RIGHT
+					: InputSnapshot.Key.LEFT;
+		}
+		return distance >= 0 ? InputSnapshot.Key.DOWN : InputSnapshot.Key.UP;
+	}
+
+	/**
+	 * Determines whether the taxi can use a thruster without flying into a
+	 * planet that isn't its destination within a distance.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal position of the taxi
+	 * @param y is the vertical position of the taxi
+	 * @param thruster is the key of the thruster
+	 * @param distance is how many pixels ahead to check
+	 * @return true when no planet is in the way, otherwise false
+	 */
+	private boolean isSafe(Level level, float x, float y,
+			InputSnapshot.Key thruster, float distance) {
+		if (thruster == InputSnapshot.Key.RIGHT) {
+			x += distance;
+		} else if (thruster == InputSnapshot.Key.LEFT) {
+			x -= distance;
+		} else if (thruster == InputSnapshot.Key.DOWN) {
+			y += distance;
+		} else {
+			y -= distance;
+		}
+		return !isHittingPlanet(level, x, y, false);
+	}
+
+	/**
+	 * Determines whether the taxi would collide with a planet at a position.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal coordinate of the position
+	 * @param y is the vertical coordinate of the position
+	 * @param isAtWarp is true when the destination counts too, since landing
+	 * at warp speed crashes the taxi
+	 * @return true when a planet is at that position, otherwise false
+	 */
+	private boolean isHittingPlanet(Level level, float x, float y,
+			boolean isAtWarp) {
+		EntityStore planets = level.planets;
+		float taxiSize = taxi.body.getSize();
+		for (int i = 0; i < planets.size(); i++) {
+			if (!isAtWarp && i == destination) {
+				continue;
+			}
+			float dx = wrap(planets.x[i] - x, level.getWidth());
+			float dy = wrap(planets.y[i] - y, level.getHeight());
+			float reach = (taxiSize + planetSize(i)) / 2;
+			if (dx * dx + dy * dy <= reach * reach) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines whether a gas cloud is still at a position, since the slot
+	 * of a gas cloud changes when another one is collected.
+	 *
+	 * @param level is the level being steered
+	 * @param x is the horizontal position of the gas cloud
+	 * @param y is the vertical position of the gas cloud
+	 * @return true when a gas cloud is there, otherwise false
+	 */
+	private static boolean hasGasCloudAt(Level level, float x, float y) {
+		EntityStore gasClouds = level.gasClouds;
+		for (int i = 0; i < gasClouds.size(); i++) {
+			if (gasClouds.x[i] == x && gasClouds.y[i] == y) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the collision size of a planet, which is larger for the taxi's
+	 * destination.
+	 *
+	 * @param slot is the slot of the planet
+	 * @return the size of the planet in pixels
+	 */
+	private float planetSize(int slot) {
+		return slot == destination ? EntityStore.DESTINATION_SIZE
+				: EntityStore.PLANET_SIZE;
+	}
+
+	/**
+	 * Finds the shortest way along one axis between two positions on a
+	 * screen that wraps around at its edges.
+	 *
+	 * @param distance is the difference between the two positions
+	 * @param length is the width or height of the screen
+	 * @return the shortest signed distance, between -length/2 and length/2
+	 */
+	static float wrap(float distance, int length) {
+		if (distance > length / 2f) {
+			return distance - length;
+		} else if (distance < -length / 2f) {
+			return distance + length;
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,194 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The BatchRunner class plays many seeded random levels headless, each one
+ * steered by its own AutoPilot, spread across every core with a fork/join
+ * pool. Level i is generated from new Random(firstSeed + i), just like the
+ * GameEngine would generate it, so any level can be replayed from its seed.
+ * <br/><br/>
+ * One line of comma separated stats is printed for each seed: how the level
+ * ended, the fares completed, the fuel left, and the ticks it took. Totals
+ * over every seed are printed to System.err afterwards.
+ *
+ * Usage: java BatchRunner levels [firstSeed] [maxTicks]
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class BatchRunner {
+
+	// ways that a level can end
+	public static final byte WON = 0;
+	public static final byte CRASHED = 1;
+	public static final byte OUT_OF_FUEL = 2;
+	public static final byte TIMED_OUT = 3;
+	private static final String[] OUTCOMES = {"won", "crashed", "out of fuel",
+			"timed out"};
+
+	// ticks of game time that each level is played for at most
+	public static final int DEFAULT_MAX_TICKS = 100000;
+	// seeds that each fork/join task plays without splitting further
+	private static final int SEEDS_PER_TASK = 8;
+
+	// initialized variables, with the stats of seed firstSeed + i at index i
+	private long firstSeed;
+	private int maxTicks;
+	private byte[] outcomes;
+	private int[] fares;
+	private int[] planets;
+	private float[] fuel;
+	private int[] ticks;
+
+	/**
+	 * Initializes a batch of random levels that haven't been played yet.
+	 *
+	 * @param levels is the number of levels to play
+	 * @param firstSeed is the seed of the first level
+	 * @param maxTicks is the most ticks that each level is played for
+	 */
+	public BatchRunner(int levels, long firstSeed, int maxTicks) {
+		this.firstSeed = firstSeed;
+		this.maxTicks = maxTicks;
+		outcomes = new byte[levels];
+		fares = new int[levels];
+		planets = new int[levels];
+		fuel = new float[levels];
+		ticks = new int[levels];
+	}
+
+	/**
+	 * Plays every level of this batch, using all of the pool's threads.
+	 *
+	 * @param pool is the pool that the levels are played in
+	 * @return void
+	 */
+	public void run(ForkJoinPool pool) {
+		pool.invoke(new BatchTask(0, outcomes.length));
+	}
+
+	/**
+	 * Plays a single level until it is won or lost, or runs out of ticks,
+	 * and records its stats. Each level only uses its own objects, so this
+	 * can run on many threads at once.
+	 *
+	 * @param index is the index of the level in this batch
+	 * @return void
+	 */
+	private void play(int index) {
+		Level level = new Level(new Random(firstSeed + index),
+				Level.RANDOM_OBJECT_COUNT, true);
+		level.setPilot(new AutoPilot());
+		Taxi taxi = level.getTaxi();
+		byte outcome = TIMED_OUT;
+		int tick = 0;
+		while (tick < maxTicks) {
+			tick++;
+			if (level.tick().equals("ADVANCE")) {
+				outcome = WON;
+				break;
+			} else if (taxi.hasCrashed()) {
+				outcome = CRASHED;
+				break;
+			} else if (taxi.getFuel() <= 0) {
+				outcome = OUT_OF_FUEL;
+				break;
+			}
+		}
+		outcomes[index] = outcome;
+		fares[index] = outcome == WON ? level.planets.size()
+				: level.getDestinationPlanetIndex();
+		planets[index] = level.planets.size();
+		fuel[index] = Math.max(0, taxi.getFuel());
+		ticks[index] = tick;
+	}
+
+	/**
+	 * Prints the stats of every level, followed by the totals.
+	 *
+	 * @return void
+	 */
+	public void print() {
+		StringBuilder text = new StringBuilder("seed,outcome,fares,planets,"
+				+ "fuel,ticks\n");
+		int[] totals = new int[OUTCOMES.length];
+		long totalFares = 0;
+		double totalFuel = 0;
+		for (int i = 0; i < outcomes.length; i++) {
+			text.append(firstSeed + i).append(',')
+					.append(OUTCOMES[outcomes[i]]).append(',')
+					.append(fares[i]).append(',')
+					.append(planets[i]).append(',')
+					.append(fuel[i]).append(',')
+					.append(ticks[i]).append('\n');
+			totals[outcomes[i]]++;
+			totalFares += fares[i];
+			totalFuel += fuel[i];
+		}
+		System.out.print(text);
+
+		int levels = Math.max(1, outcomes.length);
+		for (int i = 0; i < OUTCOMES.length; i++) {
+			System.err.println(OUTCOMES[i] + ": " + totals[i] + " ("
+					+ (100 * totals[i] / levels) + "%)");
+		}
+		System.err.println("average fares: " + (double) totalFares / levels);
+		System.err.println("average fuel left: " + totalFuel / levels);
+	}
+
+	/**
+	 * Plays a batch of seeded random levels headless and prints their stats.
+	 *
+	 * @param args is the number of levels, then optionally the first seed
+	 * and the most ticks to play each level for
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java BatchRunner levels [firstSeed] "
+					+ "[maxTicks]");
+			return;
+		}
+		int levels = Integer.parseInt(args[0]);
+		long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int maxTicks = args.length > 2 ? Integer.parseInt(args[2])
+				: DEFAULT_MAX_TICKS;
+
+		BatchRunner batch = new BatchRunner(levels, firstSeed, maxTicks);
+		long start = System.nanoTime();
+		batch.run(ForkJoinPool.commonPool());
+		double seconds = (System.nanoTime() - start) / 1e9;
+		batch.print();
+		System.err.println(levels + " levels in " + seconds + "s on "
+				+ ForkJoinPool.commonPool().getParallelism() + " threads");
+	}
+
+	/**
+	 * A BatchTask plays a range of the batch's levels, splitting it in half
+	 * for other threads to steal until the range is small.
+	 */
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;	// index of the first level to play
+		private int to;		// index after the last level to play
+
+		private BatchTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= SEEDS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					play(i);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(from, middle), new BatchTask(middle, to));
+			}
+		}
+	}
+}
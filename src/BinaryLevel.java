@@ -0,0 +1,323 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The BinaryLevel class reads and writes compiled level files (.wstb). A
+ * compiled level holds the same objects as a .wst text file, but as packed
+ * floats that can be copied straight into a level's EntityStores:
+ * <pre>
+ *     "WSTB"                               4 bytes
+ *     version                              int
+ *     taxi, gas, planet, warp star counts  4 ints
+ *     x and y of each taxi                 floats
+ *     x and y of each gas cloud            floats
+ *     x and y of each planet               floats
+ *     x and y of each warp star            floats
+ * </pre>
+ * All values are big endian. Planets are kept in the same order as in the
+ * text file, since that order is the order of the fares.
+ *
+ * Usage: java BinaryLevel levelFile.wst ...
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class BinaryLevel {
+
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".wstb";
+
+	private static final byte[] MAGIC = {'W', 'S', 'T', 'B'};
+	private static final int HEADER_SIZE = MAGIC.length + 5 * 4;
+
+	// initialized variables
+	private boolean hasTaxi;
+	private float taxiX;
+	private float taxiY;
+	private EntityStore gasClouds;
+	private EntityStore planets;
+	private EntityStore warpStars;
+
+	/**
+	 * Initializes an empty level description that objects can be added to.
+	 */
+	public BinaryLevel() {
+		this(new EntityStore(), new EntityStore(), new EntityStore());
+	}
+
+	/**
+	 * Initializes a level description whose objects are kept in the
+	 * specified stores, so that reading a file fills those stores directly.
+	 *
+	 * @param gasClouds is the store that gas clouds are kept in
+	 * @param planets is the store that planets are kept in
+	 * @param warpStars is the store that warp stars are kept in
+	 */
+	public BinaryLevel(EntityStore gasClouds, EntityStore planets,
+			EntityStore warpStars) {
+		this.gasClouds = gasClouds;
+		this.planets = planets;
+		this.warpStars = warpStars;
+	}
+
+	/**
+	 * Adds one object to this level description. Like in a text level file,
+	 * a later taxi replaces an earlier one.
+	 *
+	 * @param type is the type of the object, like EntityStore.GAS
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 * @return void
+	 */
+	public void add(byte type, float x, float y) {
+		switch (type) {
+		case EntityStore.TAXI:
+			hasTaxi = true;
+			taxiX = x;
+			taxiY = y;
+			break;
+		case EntityStore.GAS:
+			GasCloud.add(gasClouds, x, y, 0);
+			break;
+		case EntityStore.PLANET:
+			Planet.add(planets, x, y);
+			break;
+		case EntityStore.WARP_STAR:
+			WarpStar.add(warpStars, x, y);
+			break;
+		}
+	}
+
+	public boolean hasTaxi() {
+		return hasTaxi;
+	}
+
+	public float getTaxiX() {
+		return taxiX;
+	}
+
+	public float getTaxiY() {
+		return taxiY;
+	}
+
+	public EntityStore getGasClouds() {
+		return gasClouds;
+	}
+
+	public EntityStore getPlanets() {
+		return planets;
+	}
+
+	public EntityStore getWarpStars() {
+		return warpStars;
+	}
+
+	/**
+	 * Reads a compiled level file into this level description's stores,
+	 * after any objects that are already in them.
+	 *
+	 * @param filename is the name of the .wstb file
+	 * @return void
+	 * @throws IOException when the file can't be read, or is not a compiled
+	 * level of a supported version
+	 */
+	public void read(String filename) throws IOException {
+		FileInputStream input = new FileInputStream(filename);
+		try {
+			FileChannel channel = input.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(filename + " is not a compiled level");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (buffer.get() != MAGIC[i]) {
+					throw new IOException(filename + " is not a compiled level");
+				}
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException(filename + " has unsupported version "
+						+ version);
+			}
+			int taxis = buffer.getInt();
+			int gas = buffer.getInt();
+			int planetCount = buffer.getInt();
+			int stars = buffer.getInt();
+			long expected = HEADER_SIZE
+					+ 8L * ((long) taxis + gas + planetCount + stars);
+			if (taxis < 0 || gas < 0 || planetCount < 0 || stars < 0
+					|| channel.size() != expected) {
+				throw new IOException(filename + " is truncated or corrupt");
+			}
+
+			FloatBuffer positions = buffer.asFloatBuffer();
+			for (int i = 0; i < taxis; i++) {
+				add(EntityStore.TAXI, positions.get(), positions.get());
+			}
+			gasClouds.addAll(EntityStore.GAS, positions, gas);
+			planets.addAll(EntityStore.PLANET, positions, planetCount);
+			warpStars.addAll(EntityStore.WARP_STAR, positions, stars);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes this level description to a compiled level file.
+	 *
+	 * @param filename is the name of the .wstb file to write
+	 * @return void
+	 * @throws IOException when the file can't be written
+	 */
+	public void write(String filename) throws IOException {
+		int taxis = hasTaxi ? 1 : 0;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * (taxis
+				+ gasClouds.size() + planets.size() + warpStars.size()));
+		buffer.put(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(taxis);
+		buffer.putInt(gasClouds.size());
+		buffer.putInt(planets.size());
+		buffer.putInt(warpStars.size());
+		if (hasTaxi) {
+			buffer.putFloat(taxiX);
+			buffer.putFloat(taxiY);
+		}
+		putPositions(buffer, gasClouds);
+		putPositions(buffer, planets);
+		putPositions(buffer, warpStars);
+		buffer.flip();
+
+		FileOutputStream output = new FileOutputStream(filename);
+		try {
+			FileChannel channel = output.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Determines whether a file is a compiled level, by its first bytes.
+	 *
+	 * @param filename is the name of the file
+	 * @return true when the file starts like a compiled level, and false
+	 * otherwise (including when it can't be read)
+	 */
+	public static boolean isBinary(String filename) {
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(filename);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (input.read() != MAGIC[i]) {
+					return false;
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// nothing left to clean up
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a level file of either kind, compiled or text, into a new level
+	 * description.
+	 *
+	 * @param filename is the name of the .wstb or .wst file
+	 * @return the level description
+	 * @throws IOException when the file can't be read, or has a mistake in
+	 * it (a LevelFormatException for a text file)
+	 */
+	public static BinaryLevel load(String filename) throws IOException {
+		final BinaryLevel level = new BinaryLevel();
+		if (isBinary(filename)) {
+			level.read(filename);
+		} else {
+			new LevelParser().parse(filename, new LevelParser.Handler() {
+				public void handleObject(byte type, float x, float y) {
+					level.add(type, x, y);
+				}
+			});
+		}
+		return level;
+	}
+
+	/**
+	 * Compiles a text level file into a binary one.
+	 *
+	 * @param textFilename is the name of the .wst file to read
+	 * @param binaryFilename is the name of the .wstb file to write
+	 * @return the compiled level description
+	 * @throws IOException when either file can't be used
+	 */
+	public static BinaryLevel convert(String textFilename,
+			String binaryFilename) throws IOException {
+		final BinaryLevel level = new BinaryLevel();
+		new LevelParser().parse(textFilename, new LevelParser.Handler() {
+			public void handleObject(byte type, float x, float y) {
+				level.add(type, x, y);
+			}
+		});
+		level.write(binaryFilename);
+		return level;
+	}
+
+	/**
+	 * Compiles each text level file named on the command line into a .wstb
+	 * file next to it.
+	 *
+	 * @param args is the sequence of .wst files to compile
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: java BinaryLevel levelFile.wst ...");
+			return;
+		}
+		for (int i = 0; i < args.length; i++) {
+			String textFilename = args[i];
+			String binaryFilename = (textFilename.endsWith(".wst")
+					? textFilename.substring(0, textFilename.length() - 4)
+					: textFilename) + EXTENSION;
+			try {
+				BinaryLevel level = convert(textFilename, binaryFilename);
+				System.out.println(textFilename + " -> " + binaryFilename + " ("
+						+ level.gasClouds.size() + " gas, "
+						+ level.planets.size() + " planets, "
+						+ level.warpStars.size() + " warp stars)");
+			} catch (IOException e) {
+				System.err.println(textFilename + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Writes the x and y position of every entity in a store.
+	 *
+	 * @param buffer is where the positions are written
+	 * @param store holds the entities
+	 * @return void
+	 */
+	private static void putPositions(ByteBuffer buffer, EntityStore store) {
+		for (int i = 0; i < store.size(); i++) {
+			buffer.putFloat(store.x[i]);
+			buffer.putFloat(store.y[i]);
+		}
+	}
+}
@@ -0,0 +1,379 @@
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * The Body class holds the position, orientation and size of one object in
+ * the game, so that the simulation can run without the GameEngine window.
+ * It follows the same rules as the Graphic class from WarpStarTaxi.jar:
+ * collisions are circles with a diameter of (width + height) / 2 of the
+ * image, and the same fallback sizes are used when an image is missing.
+ * A body only refers to its Appearance, which is shared with every other
+ * object that looks the same, so it never has a Graphic of its own.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class Body {
+
+	// sizes used by Graphic when there is no image file for an appearance
+	private static final HashMap<String, Float> FALLBACK_SIZES =
+			new HashMap<String, Float>();
+	private static final HashMap<String, Float> sizes =
+			new HashMap<String, Float>();
+
+	static {
+		FALLBACK_SIZES.put("TAXI", 15f);
+		FALLBACK_SIZES.put("EXPLOSION", 30f);
+		FALLBACK_SIZES.put("WARP_STAR", 20f);
+		FALLBACK_SIZES.put("PLANET", 25f);
+		FALLBACK_SIZES.put("DESTINATION", 40f);
+		FALLBACK_SIZES.put("GAS", 50f);
+	}
+
+	// initialized variables
+	private Appearance appearance;
+	private float x;
+	private float y;
+	private float direction;	// stored the same way Graphic stores it
+
+	/**
+	 * Initializes a new body with the specified appearance at position 0, 0.
+	 *
+	 * @param appearance is the appearance of the body, like Appearance.TAXI
+	 */
+	public Body(Appearance appearance) {
+		this.appearance = appearance;
+	}
+
+	/**
+	 * Changes the appearance of this body, and with it the size that is
+	 * used for collisions.
+	 *
+	 * @param appearance is the new appearance, like Appearance.EXPLOSION
+	 * @return void
+	 */
+	public void setAppearance(Appearance appearance) {
+		this.appearance = appearance;
+	}
+
+	/**
+	 * This accessor retrieves this body's appearance.
+	 *
+	 * @return the appearance, like Appearance.TAXI
+	 */
+	public Appearance getAppearance() {
+		return appearance;
+	}
+
+	/**
+	 * This accessor retrieves the collision diameter of this body.
+	 *
+	 * @return the size of this body in pixels
+	 */
+	public float getSize() {
+		return appearance.getSize();
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public void setX(float x) {
+		this.x = x;
+	}
+
+	public void setY(float y) {
+		this.y = y;
+	}
+
+	public void setPosition(float x, float y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * This accessor retrieves the orientation of this body, measured
+	 * counter-clockwise like Graphic.getDirection().
+	 *
+	 * @return the direction of this body in radians
+	 */
+	public float getDirection() {
+		return (-direction + (float) (16 * Math.PI)) % (float) (2 * Math.PI);
+	}
+
+	/**
+	 * Changes the orientation of this body, measured counter-clockwise like
+	 * Graphic.setDirection(float).
+	 *
+	 * @param direction is the new direction of this body in radians
+	 * @return void
+	 */
+	public void setDirection(float direction) {
+		this.direction =
+				(-direction + (float) (16 * Math.PI)) % (float) (2 * Math.PI);
+	}
+
+	/**
+	 * Turns this body to face the specified position.
+	 *
+	 * @param x is the horizontal coordinate to face toward
+	 * @param y is the vertical coordinate to face toward
+	 * @return void
+	 */
+	public void setDirection(float x, float y) {
+		this.direction = (float) Math.atan2(y - this.y, x - this.x);
+	}
+
+	public float getDirectionX() {
+		return (float) Math.cos(direction);
+	}
+
+	public float getDirectionY() {
+		return (float) Math.sin(direction);
+	}
+
+	/**
+	 * Determines whether this body overlaps with another body.
+	 *
+	 * @param other is the body to check for a collision against
+	 * @return true when the two bodies overlap, otherwise false
+	 */
+	public boolean isCollidingWith(Body other) {
+		float dx = x - other.x;
+		float dy = y - other.y;
+		float radius = (getSize() + other.getSize()) / 2;
+		return dx * dx + dy * dy <= radius * radius;
+	}
+
+	/**
+	 * Determines whether this body overlaps with an object that is not
+	 * stored as a body, like an entity in an EntityStore.
+	 *
+	 * @param x is the horizontal position of the other object
+	 * @param y is the vertical position of the other object
+	 * @param size is the collision size of the other object
+	 * @return true when the two objects overlap, otherwise false
+	 */
+	public boolean isCollidingWith(float x, float y, float size) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		float radius = (getSize() + size) / 2;
+		return dx * dx + dy * dy <= radius * radius;
+	}
+
+	/**
+	 * Determines whether this body covers the specified position.
+	 *
+	 * @param x is the horizontal coordinate of the position
+	 * @param y is the vertical coordinate of the position
+	 * @return true when the position is inside this body, otherwise false
+	 */
+	public boolean isCoveringPosition(float x, float y) {
+		float dx = this.x - x;
+		float dy = this.y - y;
+		float radius = getSize() / 2;
+		return dx * dx + dy * dy <= radius * radius;
+	}
+
+	/**
+	 * Finds where a moving object first touches a still one, on a screen
+	 * that wraps around at its edges. The moving object travels in a
+	 * straight line, which is split into the parts spent on each copy of the
+	 * screen it crosses, so nothing is skipped over however far it moves.
+	 * Like a collision check after wrapping, the still object is only
+	 * touched on the same copy of the screen, never across an edge. Touching
+	 * it at the very start of the move doesn't count, since the moving
+	 * object was already checked there before it moved.
+	 *
+	 * @param x is the horizontal position the moving object starts at
+	 * @param y is the vertical position the moving object starts at
+	 * @param moveX is how far the moving object travels horizontally
+	 * @param moveY is how far the moving object travels vertically
+	 * @param otherX is the horizontal position of the still object
+	 * @param otherY is the vertical position of the still object
+	 * @param reach is the largest distance at which the two collide
+	 * @param width is the width of the screen
+	 * @param height is the height of the screen
+	 * @return how far along the move they first touch, from just after 0
+	 * (the start) to 1 (the end), or -1 when they never touch after the
+	 * start
+	 */
+	public static float findContact(float x, float y, float moveX, float moveY,
+			float otherX, float otherY, float reach, int width, int height) {
+		// the copies of the screen that the move passes through
+		int firstColumn = 0;
+		int lastColumn = 0;
+		if (moveX != 0) {
+			firstColumn = (int) Math.floor(Math.min(x, x + moveX) / width);
+			lastColumn = (int) Math.floor(Math.max(x, x + moveX) / width);
+		}
+		int firstRow = 0;
+		int lastRow = 0;
+		if (moveY != 0) {
+			firstRow = (int) Math.floor(Math.min(y, y + moveY) / height);
+			lastRow = (int) Math.floor(Math.max(y, y + moveY) / height);
+		}
+		float a = moveX * moveX + moveY * moveY;
+		float first = -1;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				// the part of the move spent on this copy of the screen
+				float enter = 0;
+				float exit = 1;
+				if (moveX != 0) {
+					float left = (column * width - x) / moveX;
+					float right = ((column + 1) * width - x) / moveX;
+					enter = Math.max(enter, Math.min(left, right));
+					exit = Math.min(exit, Math.max(left, right));
+				}
+				if (moveY != 0) {
+					float top = (row * height - y) / moveY;
+					float bottom = ((row + 1) * height - y) / moveY;
+					enter = Math.max(enter, Math.min(top, bottom));
+					exit = Math.min(exit, Math.max(top, bottom));
+				}
+				if (enter > exit) {
+					continue;
+				}
+				// the part of the move within reach of the object's copy,
+				// from solving |copy - t * move| = reach
+				float dx = otherX + column * width - x;
+				float dy = otherY + row * height - y;
+				float b = dx * moveX + dy * moveY;
+				float c = dx * dx + dy * dy - reach * reach;
+				float discriminant = b * b - a * c;
+				if (a == 0 || discriminant < 0) {
+					continue;
+				}
+				float root = (float) Math.sqrt(discriminant);
+				float touch = (b - root) / a;
+				float leave = (b + root) / a;
+				float t = Math.max(touch, enter);
+				if (t > 0 && t <= Math.min(leave, exit)
+						&& (first < 0 || t < first)) {
+					first = t;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Writes the position and orientation of this body, exactly as they are
+	 * stored, so that readState() can bring them back without rounding.
+	 *
+	 * @param buffer is where the state is written
+	 * @return void
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.putFloat(x);
+		buffer.putFloat(y);
+		buffer.putFloat(direction);
+	}
+
+	/**
+	 * Reads the position and orientation written by writeState().
+	 *
+	 * @param buffer is where the state is read from
+	 * @return void
+	 */
+	public void readState(ByteBuffer buffer) {
+		x = buffer.getFloat();
+		y = buffer.getFloat();
+		direction = buffer.getFloat();
+	}
+
+	/**
+	 * Draws this body at the specified position instead of its own, for
+	 * example somewhere between two steps of the simulation. This must only
+	 * be called while the GameEngine is running.
+	 *
+	 * @param x is the horizontal position to draw this body at
+	 * @param y is the vertical position to draw this body at
+	 * @return void
+	 */
+	public void draw(float x, float y) {
+		appearance.draw(x, y, getDirection());
+	}
+
+	/**
+	 * Looks up the collision size of an appearance the same way Graphic
+	 * does: from the dimensions of its image when the image exists, and
+	 * from a fixed table otherwise. Only the PNG header is read.
+	 *
+	 * @param appearance is the upper case name of the appearance
+	 * @return the size of that appearance in pixels
+	 */
+	public static synchronized float sizeOf(String appearance) {
+		Float size = sizes.get(appearance);
+		if (size == null) {
+			int[] dimensions = readDimensions(appearance);
+			if (dimensions != null) {
+				size = (dimensions[0] + dimensions[1]) / 2f;
+			} else {
+				size = FALLBACK_SIZES.get(appearance);
+				if (size == null) {
+					size = 20f;	// Graphic's default size
+				}
+			}
+			sizes.put(appearance, size);
+		}
+		return size;
+	}
+
+	/**
+	 * Finds the farthest any part of an appearance's image can reach from
+	 * its center, whichever way it is turned, which is half the diagonal
+	 * of the image. An appearance without an image is treated as a square
+	 * of its collision size.
+	 *
+	 * @param appearance is the upper case name of the appearance
+	 * @return the distance in pixels
+	 */
+	public static float drawRadiusOf(String appearance) {
+		int[] dimensions = readDimensions(appearance);
+		if (dimensions == null) {
+			return sizeOf(appearance) * (float) Math.sqrt(2) / 2;
+		}
+		return (float) Math.sqrt(dimensions[0] * dimensions[0]
+				+ dimensions[1] * dimensions[1]) / 2;
+	}
+
+	/**
+	 * Reads the width and height of an appearance's image from its PNG
+	 * header.
+	 *
+	 * @param appearance is the upper case name of the appearance
+	 * @return the width and height, or null when there is no image
+	 */
+	private static int[] readDimensions(String appearance) {
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream
+					("images/" + appearance + ".png"));
+			// the width and height follow the signature and IHDR header
+			input.skipBytes(16);
+			int width = input.readInt();
+			int height = input.readInt();
+			return new int[] {width, height};
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// nothing left to clean up
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,495 @@
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The EndlessWorld class streams the chunks of an endless level. The world
+ * is an endless grid of chunks, each the size of the screen, and instead of
+ * wrapping around to the same screen the taxi flies on into the next
+ * chunk. Every chunk holds the same mix of warp stars, gas clouds and
+ * planets that a random level does, generated from a seed made from the
+ * world's seed and the chunk's coordinates, so a chunk is the same every
+ * time it is generated.
+ * <br/><br/>
+ * A chunk is only generated when the taxi enters it, since the level only
+ * ever holds the taxi's chunk, so crossing an edge never generates more
+ * than one chunk. The chunks around the taxi's chunk stay loaded once
+ * visited, so flying back and forth across an edge generates nothing, and
+ * the rest are evicted and generated again when the taxi comes back. What
+ * the taxi changed in a chunk (the gas clouds collected, as a bit for each
+ * cloud, and the fares completed) is remembered for the MAX_REMEMBERED
+ * chunks visited most recently, so memory stays the same however far the
+ * taxi flies.
+ * <br/><br/>
+ * Within a chunk, the planets are destinations one after the other, like
+ * the planets of a level. Once they have all been visited the chunk has no
+ * destination, and the taxi has to fly on to find more fares.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class EndlessWorld {
+
+	// the level filename that plays an endless level, like "java Level endless"
+	public static final String NAME = "endless";
+
+	// chunks kept loaded in each direction around the taxi's chunk
+	public static final int LOADED_RADIUS = 1;
+
+	// the most evicted chunks whose gas clouds and fares are remembered
+	public static final int MAX_REMEMBERED = 4096;
+
+	private static final int SIDE = 2 * LOADED_RADIUS + 1;
+	// the slot of the taxi's chunk among the loaded chunks
+	private static final int MIDDLE = LOADED_RADIUS * SIDE + LOADED_RADIUS;
+	// what is written for a slot around the taxi's chunk with no chunk
+	private static final Progress NO_PROGRESS = new Progress();
+
+	// initialized variables
+	private long seed;
+	private int objectCount;
+	private int width;
+	private int height;
+	private int chunkX;				// the chunk the taxi is in
+	private int chunkY;
+	private int fares;				// fares completed in every chunk
+	private int generated;			// chunks generated so far
+	// the loaded chunks, with the taxi's chunk in the middle, or null
+	// around it where the taxi hasn't been since it moved close
+	private Chunk[] loaded = new Chunk[SIDE * SIDE];
+	private Chunk[] spare = new Chunk[SIDE * SIDE];
+	private Chunk[] free = new Chunk[SIDE * SIDE];	// evicted, for reuse
+	private int freeCount;
+	// what changed in the evicted chunks, by key(), least recent first
+	private Map<Long, Progress> remembered =
+			new LinkedHashMap<Long, Progress>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(
+						Map.Entry<Long, Progress> eldest) {
+					return size() > MAX_REMEMBERED;
+				}
+			};
+
+	/**
+	 * Initializes a world with the taxi in chunk 0, 0.
+	 *
+	 * @param seed is the seed that every chunk's seed is made from
+	 * @param objectCount is the number of warp stars, gas clouds and planets
+	 * in each chunk
+	 * @param width is the width of each chunk, which is the screen's width
+	 * @param height is the height of each chunk, which is the screen's height
+	 */
+	public EndlessWorld(long seed, int objectCount, int width, int height) {
+		this.seed = seed;
+		this.objectCount = objectCount;
+		this.width = width;
+		this.height = height;
+		stream();
+	}
+
+	/**
+	 * Moves the taxi into another chunk, generating it unless it is still
+	 * loaded, and evicting the chunks that are now too far away.
+	 *
+	 * @param columns is how many chunks the taxi moved to the right, or to
+	 * the left when negative
+	 * @param rows is how many chunks the taxi moved down, or up when
+	 * negative
+	 * @return void
+	 */
+	public void move(int columns, int rows) {
+		chunkX += columns;
+		chunkY += rows;
+		stream();
+	}
+
+	/**
+	 * Copies the objects of the taxi's chunk into a level's stores, leaving
+	 * out the gas clouds that have been collected. Nothing is marked as a
+	 * destination.
+	 *
+	 * @param gasClouds is the store that the gas clouds are copied into
+	 * @param planets is the store that the planets are copied into
+	 * @param warpStars is the store that the warp stars are copied into
+	 * @return void
+	 */
+	public void copyChunk(EntityStore gasClouds, EntityStore planets,
+			EntityStore warpStars) {
+		Chunk chunk = current();
+		gasClouds.clear();
+		planets.clear();
+		warpStars.clear();
+		for (int i = 0; i < chunk.gasClouds.size(); i++) {
+			if (!chunk.progress.collected.get(i)) {
+				GasCloud.add(gasClouds, chunk.gasClouds.x[i],
+						chunk.gasClouds.y[i], 0);
+			}
+		}
+		for (int i = 0; i < chunk.planets.size(); i++) {
+			Planet.add(planets, chunk.planets.x[i], chunk.planets.y[i]);
+		}
+		for (int i = 0; i < chunk.warpStars.size(); i++) {
+			WarpStar.add(warpStars, chunk.warpStars.x[i], chunk.warpStars.y[i]);
+		}
+	}
+
+	/**
+	 * Remembers that a gas cloud of the taxi's chunk was collected, so that
+	 * it stays gone when the chunk is generated again.
+	 *
+	 * @param x is the horizontal position of the gas cloud
+	 * @param y is the vertical position of the gas cloud
+	 * @return void
+	 */
+	public void collectGasCloud(float x, float y) {
+		Chunk chunk = current();
+		for (int i = 0; i < chunk.gasClouds.size(); i++) {
+			if (chunk.gasClouds.x[i] == x && chunk.gasClouds.y[i] == y
+					&& !chunk.progress.collected.get(i)) {
+				chunk.progress.collected.set(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Counts a fare completed in the taxi's chunk.
+	 *
+	 * @return void
+	 */
+	public void completeFare() {
+		fares++;
+		current().progress.fares++;
+	}
+
+	/**
+	 * This accessor retrieves the fares completed in the taxi's chunk, which
+	 * is also the slot of the chunk's destination planet.
+	 *
+	 * @return the number of fares completed in this chunk
+	 */
+	public int getChunkFares() {
+		return current().progress.fares;
+	}
+
+	/**
+	 * This accessor retrieves the fares completed in the whole world.
+	 *
+	 * @return the number of fares completed
+	 */
+	public int getFares() {
+		return fares;
+	}
+
+	/**
+	 * This accessor retrieves the column of the chunk the taxi is in.
+	 *
+	 * @return the column, which is 0 where the taxi started
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 * This accessor retrieves the row of the chunk the taxi is in.
+	 *
+	 * @return the row, which is 0 where the taxi started
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 * This accessor retrieves how many chunks have been generated, counting
+	 * a chunk again each time it is generated again.
+	 *
+	 * @return the number of chunks generated
+	 */
+	public int getGeneratedCount() {
+		return generated;
+	}
+
+	/**
+	 * This accessor retrieves how many evicted chunks are remembered.
+	 *
+	 * @return the number of chunks remembered, at most MAX_REMEMBERED
+	 */
+	public int getRememberedCount() {
+		return remembered.size();
+	}
+
+	/**
+	 * Writes where the taxi is and everything it has changed in the world,
+	 * so that readState() can bring the world back to this moment. The
+	 * chunks themselves are not written, since they can be generated again.
+	 *
+	 * @param buffer is where the getStateSize() bytes of state are written
+	 * @return void
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.putInt(chunkX);
+		buffer.putInt(chunkY);
+		buffer.putInt(fares);
+		// the remembered chunks from the least recently visited, so that
+		// they are forgotten in the same order after they are read
+		buffer.putInt(remembered.size());
+		for (Map.Entry<Long, Progress> entry : remembered.entrySet()) {
+			buffer.putLong(entry.getKey());
+			writeProgress(buffer, entry.getValue());
+		}
+		for (int i = 0; i < loaded.length; i++) {
+			writeProgress(buffer, loaded[i] != null ? loaded[i].progress
+					: NO_PROGRESS);
+		}
+	}
+
+	/**
+	 * Brings the world back to the moment that writeState() was called,
+	 * generating the taxi's chunk again, and the chunks around it that the
+	 * taxi changed.
+	 *
+	 * @param buffer is where the state is read from
+	 * @return void
+	 */
+	public void readState(ByteBuffer buffer) {
+		for (int i = 0; i < loaded.length; i++) {
+			if (loaded[i] != null) {
+				loaded[i].progress = null;
+				free[freeCount++] = loaded[i];
+				loaded[i] = null;
+			}
+		}
+		chunkX = buffer.getInt();
+		chunkY = buffer.getInt();
+		fares = buffer.getInt();
+		remembered.clear();
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			long key = buffer.getLong();
+			remembered.put(key, readProgress(buffer));
+		}
+		stream();
+		for (int i = 0; i < loaded.length; i++) {
+			Progress progress = readProgress(buffer);
+			// a chunk without progress is the same when generated later
+			if (loaded[i] == null && !progress.isEmpty()) {
+				loaded[i] = generate(chunkX + i % SIDE - LOADED_RADIUS,
+						chunkY + i / SIDE - LOADED_RADIUS);
+			}
+			if (loaded[i] != null) {
+				loaded[i].progress = progress;
+			}
+		}
+	}
+
+	/**
+	 * This accessor retrieves how many bytes writeState() writes.
+	 *
+	 * @return the size of this world's state in bytes
+	 */
+	public int getStateSize() {
+		int size = 4 * 4;
+		for (Progress progress : remembered.values()) {
+			size += 8 + progress.getStateSize();
+		}
+		for (int i = 0; i < loaded.length; i++) {
+			size += loaded[i] != null ? loaded[i].progress.getStateSize()
+					: NO_PROGRESS.getStateSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Writes what the taxi changed in one chunk.
+	 *
+	 * @param buffer is where the progress is written
+	 * @param progress is the progress of the chunk
+	 * @return void
+	 */
+	private static void writeProgress(ByteBuffer buffer, Progress progress) {
+		long[] words = progress.collected.toLongArray();
+		buffer.putInt(progress.fares);
+		buffer.putInt(words.length);
+		for (int i = 0; i < words.length; i++) {
+			buffer.putLong(words[i]);
+		}
+	}
+
+	/**
+	 * Reads what the taxi changed in one chunk.
+	 *
+	 * @param buffer is where the progress is read from
+	 * @return the progress of the chunk
+	 */
+	private static Progress readProgress(ByteBuffer buffer) {
+		Progress progress = new Progress();
+		progress.fares = buffer.getInt();
+		long[] words = new long[buffer.getInt()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = buffer.getLong();
+		}
+		progress.collected = BitSet.valueOf(words);
+		return progress;
+	}
+
+	/**
+	 * Finds the chunk the taxi is in, which is always loaded.
+	 *
+	 * @return the taxi's chunk
+	 */
+	private Chunk current() {
+		return loaded[MIDDLE];
+	}
+
+	/**
+	 * Keeps the loaded chunks that are still around the taxi's chunk,
+	 * evicts the rest, and generates the taxi's chunk when it is missing.
+	 * The chunks around it are only generated once the taxi enters them,
+	 * so each move generates one chunk at most.
+	 *
+	 * @return void
+	 */
+	private void stream() {
+		for (int i = 0; i < loaded.length; i++) {
+			Chunk chunk = loaded[i];
+			loaded[i] = null;
+			if (chunk == null) {
+				continue;
+			}
+			int column = chunk.x - chunkX + LOADED_RADIUS;
+			int row = chunk.y - chunkY + LOADED_RADIUS;
+			if (column >= 0 && column < SIDE && row >= 0 && row < SIDE) {
+				spare[row * SIDE + column] = chunk;
+			} else {
+				evict(chunk);
+			}
+		}
+		Chunk[] window = spare;
+		spare = loaded;
+		loaded = window;
+		if (loaded[MIDDLE] == null) {
+			loaded[MIDDLE] = generate(chunkX, chunkY);
+		}
+	}
+
+	/**
+	 * Forgets a chunk's objects, but remembers what the taxi changed in it.
+	 *
+	 * @param chunk is the chunk being evicted
+	 * @return void
+	 */
+	private void evict(Chunk chunk) {
+		Progress progress = chunk.progress;
+		if (!progress.isEmpty()) {
+			remembered.put(key(chunk.x, chunk.y), progress);
+		}
+		chunk.progress = null;
+		free[freeCount++] = chunk;
+	}
+
+	/**
+	 * Generates a chunk the same way loadRandomLevel() fills a level, and
+	 * brings back what the taxi changed in it before it was evicted.
+	 *
+	 * @param x is the column of the chunk
+	 * @param y is the row of the chunk
+	 * @return the chunk
+	 */
+	private Chunk generate(int x, int y) {
+		Chunk chunk = freeCount > 0 ? free[--freeCount] : new Chunk();
+		free[freeCount] = null;
+		chunk.x = x;
+		chunk.y = y;
+		chunk.gasClouds.clear();
+		chunk.planets.clear();
+		chunk.warpStars.clear();
+		Random rng = new Random(chunkSeed(x, y));
+		PlanetPlacer placer = new PlanetPlacer(rng, chunk.planets, width,
+				height, PlanetPlacer.DEFAULT_ATTEMPTS);
+		for (int i = 0; i < objectCount; i++) {
+			WarpStar.add(chunk.warpStars, rng.nextFloat() * width,
+					rng.nextFloat() * height);
+			GasCloud.add(chunk.gasClouds, rng.nextFloat() * width,
+					rng.nextFloat() * height, 0);
+			if (!placer.isFull()) {
+				placer.place();
+			}
+		}
+		chunk.progress = remembered.remove(key(x, y));
+		if (chunk.progress == null) {
+			chunk.progress = new Progress();
+		}
+		generated++;
+		return chunk;
+	}
+
+	/**
+	 * Makes the seed of a chunk by mixing the world's seed with the chunk's
+	 * coordinates, so that neighboring chunks get unrelated seeds.
+	 *
+	 * @param x is the column of the chunk
+	 * @param y is the row of the chunk
+	 * @return the seed of the chunk's Random
+	 */
+	private long chunkSeed(int x, int y) {
+		long z = seed + x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Makes the key that a chunk is remembered by.
+	 *
+	 * @param x is the column of the chunk
+	 * @param y is the row of the chunk
+	 * @return both coordinates in one number
+	 */
+	private static long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * A Chunk holds the generated objects of one loaded chunk. Its stores
+	 * are reused when it is evicted and another chunk is generated.
+	 */
+	private static class Chunk {
+		private int x;
+		private int y;
+		private EntityStore gasClouds = new EntityStore();
+		private EntityStore planets = new EntityStore();
+		private EntityStore warpStars = new EntityStore();
+		private Progress progress;
+	}
+
+	/**
+	 * A Progress holds what the taxi changed in a chunk, which is all that
+	 * is kept of a chunk once it is evicted.
+	 */
+	private static class Progress {
+		private BitSet collected = new BitSet();	// by generated gas cloud
+		private int fares;
+
+		/**
+		 * Determines whether the taxi changed anything in the chunk.
+		 *
+		 * @return true when it didn't, otherwise false
+		 */
+		private boolean isEmpty() {
+			return fares == 0 && collected.isEmpty();
+		}
+
+		/**
+		 * Counts the bytes that writeProgress() writes for this progress.
+		 *
+		 * @return the size in bytes
+		 */
+		private int getStateSize() {
+			return 4 + 4 + 8 * ((collected.length() + 63) / 64);
+		}
+	}
+}
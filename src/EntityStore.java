@@ -0,0 +1,317 @@
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * The EntityStore class holds many objects of the game in parallel arrays of
+ * primitives instead of one object per entity: the position, direction,
+ * type and flags of the entity in slot i are x[i], y[i], direction[i],
+ * type[i] and flags[i]. Looping over a store walks through a few contiguous
+ * arrays, and adding an entity does not allocate unless the arrays grow.
+ * <br/><br/>
+ * Entities are removed by moving the last entity into the removed slot, so
+ * removing never shifts the rest of the store, but it does change the slot
+ * of the last entity. Stores whose order matters (like the planets) should
+ * simply never remove anything.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class EntityStore {
+
+	// types of entities
+	public static final byte TAXI = 0;
+	public static final byte GAS = 1;
+	public static final byte PLANET = 2;
+	public static final byte WARP_STAR = 3;
+
+	// bits of the flags for each entity
+	public static final int DESTINATION = 1;
+
+	// collision sizes of each appearance
+	public static final float GAS_SIZE = Appearance.GAS.getSize();
+	public static final float PLANET_SIZE = Appearance.PLANET.getSize();
+	public static final float DESTINATION_SIZE =
+			Appearance.DESTINATION.getSize();
+	public static final float WARP_STAR_SIZE = Appearance.WARP_STAR.getSize();
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// initialized variables
+	public float[] x;
+	public float[] y;
+	public float[] direction;	// measured like Graphic.getDirection()
+	public byte[] type;
+	public int[] flags;
+	private int size;
+
+	/**
+	 * Initializes a new empty store.
+	 */
+	public EntityStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Initializes a new empty store with room for the specified number of
+	 * entities before its arrays need to grow.
+	 *
+	 * @param capacity is the number of entities to make room for
+	 */
+	public EntityStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		x = new float[capacity];
+		y = new float[capacity];
+		direction = new float[capacity];
+		type = new byte[capacity];
+		flags = new int[capacity];
+	}
+
+	/**
+	 * Adds a new entity to the end of this store.
+	 *
+	 * @param type is the type of the new entity, like GAS or PLANET
+	 * @param x is the horizontal position of the new entity
+	 * @param y is the vertical position of the new entity
+	 * @param direction is the orientation of the new entity
+	 * @return the slot of the new entity
+	 */
+	public int add(byte type, float x, float y, float direction) {
+		if (size == this.x.length) {
+			grow(size * 2);
+		}
+		this.x[size] = x;
+		this.y[size] = y;
+		this.direction[size] = direction;
+		this.type[size] = type;
+		this.flags[size] = 0;
+		return size++;
+	}
+
+	/**
+	 * Adds many entities of one type to the end of this store, reading their
+	 * positions from pairs of x and y values. Their directions start at 0.
+	 *
+	 * @param type is the type of the new entities, like GAS or PLANET
+	 * @param positions holds the x and y position of each entity, one after
+	 * the other
+	 * @param count is the number of entities to add
+	 * @return void
+	 */
+	public void addAll(byte type, FloatBuffer positions, int count) {
+		if (size + count > x.length) {
+			grow(Math.max(size + count, size * 2));
+		}
+		for (int i = size; i < size + count; i++) {
+			x[i] = positions.get();
+			y[i] = positions.get();
+		}
+		Arrays.fill(direction, size, size + count, 0);
+		Arrays.fill(this.type, size, size + count, type);
+		Arrays.fill(flags, size, size + count, 0);
+		size += count;
+	}
+
+	/**
+	 * Removes the entity in the specified slot by moving the last entity of
+	 * this store into that slot.
+	 *
+	 * @param slot is the slot of the entity being removed
+	 * @return the old slot of the entity that was moved into the removed
+	 * slot, or -1 when the removed entity was the last one
+	 */
+	public int swapRemove(int slot) {
+		int last = --size;
+		if (slot == last) {
+			return -1;
+		}
+		x[slot] = x[last];
+		y[slot] = y[last];
+		direction[slot] = direction[last];
+		type[slot] = type[last];
+		flags[slot] = flags[last];
+		return last;
+	}
+
+	/**
+	 * Writes every entity in this store, so that readState() can bring the
+	 * store back exactly as it is now.
+	 *
+	 * @param buffer is where the getStateSize() bytes of state are written
+	 * @return void
+	 */
+	public void writeState(ByteBuffer buffer) {
+		buffer.putInt(size);
+		for (int i = 0; i < size; i++) {
+			buffer.putFloat(x[i]);
+			buffer.putFloat(y[i]);
+			buffer.putFloat(direction[i]);
+			buffer.put(type[i]);
+			buffer.putInt(flags[i]);
+		}
+	}
+
+	/**
+	 * Replaces every entity in this store with those written by
+	 * writeState().
+	 *
+	 * @param buffer is where the state is read from
+	 * @return void
+	 */
+	public void readState(ByteBuffer buffer) {
+		int count = buffer.getInt();
+		if (count > x.length) {
+			grow(count);
+		}
+		for (int i = 0; i < count; i++) {
+			x[i] = buffer.getFloat();
+			y[i] = buffer.getFloat();
+			direction[i] = buffer.getFloat();
+			type[i] = buffer.get();
+			flags[i] = buffer.getInt();
+		}
+		size = count;
+	}
+
+	/**
+	 * This accessor retrieves how many bytes writeState() writes.
+	 *
+	 * @return the size of this store's state in bytes
+	 */
+	public int getStateSize() {
+		return 4 + size * (3 * 4 + 1 + 4);
+	}
+
+	/**
+	 * Replaces every entity in this store with a copy of the entities in
+	 * another store, copying each array in one go.
+	 *
+	 * @param other is the store to copy
+	 * @return void
+	 */
+	public void copyFrom(EntityStore other) {
+		if (other.size > x.length) {
+			grow(other.size);
+		}
+		System.arraycopy(other.x, 0, x, 0, other.size);
+		System.arraycopy(other.y, 0, y, 0, other.size);
+		System.arraycopy(other.direction, 0, direction, 0, other.size);
+		System.arraycopy(other.type, 0, type, 0, other.size);
+		System.arraycopy(other.flags, 0, flags, 0, other.size);
+		size = other.size;
+	}
+
+	/**
+	 * Removes every entity from this store, keeping its arrays.
+	 *
+	 * @return void
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * This accessor retrieves the number of entities in this store.
+	 *
+	 * @return the number of entities in this store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines whether the entity in a slot has all of the specified flags.
+	 *
+	 * @param slot is the slot of the entity
+	 * @param flag is one or more flag bits, like DESTINATION
+	 * @return true when all of those flags are set, otherwise false
+	 */
+	public boolean hasFlag(int slot, int flag) {
+		return (flags[slot] & flag) == flag;
+	}
+
+	/**
+	 * Sets or clears flags on the entity in a slot.
+	 *
+	 * @param slot is the slot of the entity
+	 * @param flag is one or more flag bits, like DESTINATION
+	 * @param isSet is true to set those flags, and false to clear them
+	 * @return void
+	 */
+	public void setFlag(int slot, int flag, boolean isSet) {
+		if (isSet) {
+			flags[slot] |= flag;
+		} else {
+			flags[slot] &= ~flag;
+		}
+	}
+
+	/**
+	 * Finds the collision size of the entity in a slot, which depends on its
+	 * type and, for planets, on whether it is the current destination.
+	 *
+	 * @param slot is the slot of the entity
+	 * @return the size of the entity in pixels
+	 */
+	public float sizeOf(int slot) {
+		switch (type[slot]) {
+		case GAS:
+			return GAS_SIZE;
+		case PLANET:
+			return hasFlag(slot, DESTINATION) ? DESTINATION_SIZE : PLANET_SIZE;
+		case WARP_STAR:
+			return WARP_STAR_SIZE;
+		default:
+			return Appearance.TAXI.getSize();
+		}
+	}
+
+	/**
+	 * Finds the appearance that the entity in a slot is drawn with, which
+	 * is shared with every other entity that looks the same.
+	 *
+	 * @param slot is the slot of the entity
+	 * @return the entity's appearance, like Appearance.GAS
+	 */
+	public Appearance appearanceOf(int slot) {
+		switch (type[slot]) {
+		case GAS:
+			return Appearance.GAS;
+		case PLANET:
+			return hasFlag(slot, DESTINATION) ? Appearance.DESTINATION
+					: Appearance.PLANET;
+		case WARP_STAR:
+			return Appearance.WARP_STAR;
+		default:
+			return Appearance.TAXI;
+		}
+	}
+
+	/**
+	 * Adds every entity in this store to the objects a RenderQueue draws
+	 * this frame, at its current position.
+	 *
+	 * @param queue is the queue of the frame being drawn
+	 * @return void
+	 */
+	public void draw(RenderQueue queue) {
+		for (int i = 0; i < size; i++) {
+			queue.add(appearanceOf(i).getId(), x[i], y[i], direction[i]);
+		}
+	}
+
+	/**
+	 * Replaces the arrays of this store with larger copies.
+	 *
+	 * @param capacity is the new number of entities to make room for
+	 * @return void
+	 */
+	private void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		direction = Arrays.copyOf(direction, capacity);
+		type = Arrays.copyOf(type, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+	}
+}
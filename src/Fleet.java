@@ -0,0 +1,466 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The Fleet class plays one level headless with many taxis at once, each
+ * steered by its own AutoPilot and each with its own fuel, warp and fares.
+ * The taxis share the level's warp stars and planets, and compete for its
+ * gas clouds. This is how a level (or a change to the AutoPilot) can be
+ * tried out at scale instead of one taxi at a time.
+ * <br/><br/>
+ * Every tick runs the same steps as Level.simulate(), for every taxi:
+ * <ol>
+ * <li>each taxi is steered and moved, and the gas clouds it touches are
+ * noted (split across the pool's threads)</li>
+ * <li>each touched gas cloud goes to the taxi closest to its center, or
+ * to the taxi that comes first in the fleet when they are equally close,
+ * and is then removed (on one thread)</li>
+ * <li>each taxi handles its warp star click and its planets (split across
+ * the pool's threads)</li>
+ * </ol>
+ * Within a step, a taxi only changes its own state and only reads the
+ * level, so the outcome never depends on how the threads were scheduled.
+ *
+ * Usage: java Fleet taxis [seed] [levelFile] [maxTicks]
+ *
+ * Bugs: The gas clouds run out long before a big fleet does. On the level
+ * of seed 0, 2 taxis both win, but 100 taxis only win 8 times (the other
+ * 92 time out), and 1000 taxis also win 8 times. A taxi whose route needs
+ * a gas cloud that another taxi took waits for the rest of the game, since
+ * its AutoPilot finds no route left.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class Fleet {
+
+	// state of a taxi that is still playing, next to BatchRunner's outcomes
+	public static final byte FLYING = -1;
+
+	// taxis that each fork/join task steps without splitting further
+	private static final int TAXIS_PER_TASK = 64;
+
+	// initialized variables, with the state of taxi i at index i
+	private Level level;
+	private Taxi[] taxis;
+	private AutoPilot[] pilots;
+	private int[] destinations;		// slot of each taxi's destination planet
+	private int[] stopPlanets;		// planet each taxi was stopped at, or -1
+	private byte[] outcomes;		// FLYING, or how each taxi's game ended
+	private InputSnapshot[] inputs;	// each taxi's controls this tick
+	private IntList[] touchedGasClouds;
+	private IntList[] nearbyObjects;
+	private int ticks;
+	private int flying;
+
+	// collision grids, which hold each object by its slot in its store
+	private SpatialGrid gasCloudGrid;
+	private SpatialGrid warpStarGrid;
+	private SpatialGrid planetGrid;
+
+	// the taxi that gets each gas cloud this tick, and how close it is
+	private int[] claimants = new int[0];
+	private float[] claimDistances = new float[0];
+
+	/**
+	 * Initializes a level with many taxis. The first taxi starts where the
+	 * level's taxi does, and the rest start at random positions that aren't
+	 * on a planet.
+	 *
+	 * @param rng is the ONLY Random number generator used by the level and
+	 * for placing the taxis
+	 * @param levelFilename is the level file to load, or null for a random
+	 * level
+	 * @param taxiCount is the number of taxis
+	 */
+	public Fleet(Random rng, String levelFilename, int taxiCount) {
+		level = new Level(rng, levelFilename, true);
+		int width = level.getWidth();
+		int height = level.getHeight();
+		taxis = new Taxi[taxiCount];
+		pilots = new AutoPilot[taxiCount];
+		destinations = new int[taxiCount];
+		stopPlanets = new int[taxiCount];
+		outcomes = new byte[taxiCount];
+		inputs = new InputSnapshot[taxiCount];
+		touchedGasClouds = new IntList[taxiCount];
+		nearbyObjects = new IntList[taxiCount];
+		for (int i = 0; i < taxiCount; i++) {
+			if (i == 0) {
+				taxis[i] = new Taxi(level.getTaxi().body.getX(),
+						level.getTaxi().body.getY());
+			} else {
+				taxis[i] = placeTaxi(rng, width, height);
+			}
+			pilots[i] = new AutoPilot();
+			outcomes[i] = FLYING;
+			inputs[i] = InputSnapshot.NONE;
+			touchedGasClouds[i] = new IntList();
+			nearbyObjects[i] = new IntList();
+		}
+		flying = taxiCount;
+		// a level without planets is won before it starts
+		if (level.planets.size() == 0) {
+			java.util.Arrays.fill(outcomes, BatchRunner.WON);
+			flying = 0;
+		}
+		gasCloudGrid = level.buildGrid(level.gasClouds);
+		warpStarGrid = level.buildGrid(level.warpStars);
+		planetGrid = level.buildGrid(level.planets);
+	}
+
+	/**
+	 * Creates a taxi at a random position that isn't on a planet, or at the
+	 * last position tried when every try landed on a planet.
+	 *
+	 * @param rng is the random number generator
+	 * @param width is the width of the screen
+	 * @param height is the height of the screen
+	 * @return the new taxi
+	 */
+	private Taxi placeTaxi(Random rng, int width, int height) {
+		Taxi taxi = new Taxi(0, 0);
+		for (int attempt = 0; attempt < PlanetPlacer.DEFAULT_ATTEMPTS;
+				attempt++) {
+			taxi.body.setPosition(rng.nextFloat() * width,
+					rng.nextFloat() * height);
+			if (!isOnPlanet(taxi)) {
+				return taxi;
+			}
+		}
+		return taxi;
+	}
+
+	/**
+	 * Determines whether a taxi overlaps any planet, counting every planet
+	 * as a destination since those are the largest.
+	 *
+	 * @param taxi is the taxi
+	 * @return true when the taxi is on a planet, otherwise false
+	 */
+	private boolean isOnPlanet(Taxi taxi) {
+		EntityStore planets = level.planets;
+		for (int i = 0; i < planets.size(); i++) {
+			if (taxi.checkCollision(planets.x[i], planets.y[i],
+					EntityStore.DESTINATION_SIZE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Advances every taxi that is still flying, and the level around them,
+	 * by one tick of Level.TICK_TIME milliseconds.
+	 *
+	 * @param pool is the pool that the taxis are stepped in
+	 * @return void
+	 */
+	public void tick(ForkJoinPool pool) {
+		ticks++;
+		GasCloud.update(level.gasClouds, Level.TICK_TIME);
+		pool.invoke(new StepTask(StepTask.MOVE, 0, taxis.length));
+		shareGasClouds();
+		pool.invoke(new StepTask(StepTask.LAND, 0, taxis.length));
+	}
+
+	/**
+	 * Plays until every taxi has won or lost, or a number of ticks pass.
+	 *
+	 * @param pool is the pool that the taxis are stepped in
+	 * @param maxTicks is the most ticks to play
+	 * @return the number of ticks played
+	 */
+	public int run(ForkJoinPool pool, int maxTicks) {
+		while (flying > 0 && ticks < maxTicks) {
+			tick(pool);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Steers and moves one taxi, stops it at the first planet it ran into,
+	 * and notes the gas clouds it touched along the way.
+	 *
+	 * @param i is the index of the taxi
+	 * @return void
+	 */
+	private void move(int i) {
+		if (outcomes[i] != FLYING) {
+			return;
+		}
+		Taxi taxi = taxis[i];
+		int width = level.getWidth();
+		int height = level.getHeight();
+		inputs[i] = pilots[i].steer(level, taxi, destinations[i]);
+		taxi.update(Level.TICK_TIME, width, height, inputs[i]);
+		IntList nearby = nearbyObjects[i];
+		IntList touched = touchedGasClouds[i];
+		stopPlanets[i] = Planet.stopAtFirstContact(level.planets, planetGrid,
+				taxi, destinations[i], width, height, nearby);
+		nearby.clear();
+		touched.clear();
+		taxi.queryPath(gasCloudGrid, EntityStore.GAS_SIZE, nearby);
+		for (int j = 0; j < nearby.size(); j++) {
+			int cloud = nearby.get(j);
+			if (GasCloud.isTouching(level.gasClouds, cloud, taxi, width,
+					height)) {
+				touched.add(cloud);
+			}
+		}
+	}
+
+	/**
+	 * Gives each touched gas cloud to the closest taxi that touched it, with
+	 * ties going to the taxi that comes first, and removes those clouds.
+	 *
+	 * @return void
+	 */
+	private void shareGasClouds() {
+		EntityStore gasClouds = level.gasClouds;
+		if (claimants.length < gasClouds.size()) {
+			claimants = new int[gasClouds.size()];
+			claimDistances = new float[gasClouds.size()];
+		}
+		java.util.Arrays.fill(claimants, -1);
+		boolean isClaimed = false;
+		for (int i = 0; i < taxis.length; i++) {
+			if (outcomes[i] != FLYING) {
+				continue;
+			}
+			IntList touched = touchedGasClouds[i];
+			for (int j = 0; j < touched.size(); j++) {
+				int cloud = touched.get(j);
+				float dx = gasClouds.x[cloud] - taxis[i].body.getX();
+				float dy = gasClouds.y[cloud] - taxis[i].body.getY();
+				float distance = dx * dx + dy * dy;
+				if (claimants[cloud] < 0 || distance < claimDistances[cloud]) {
+					claimants[cloud] = i;
+					claimDistances[cloud] = distance;
+					isClaimed = true;
+				}
+			}
+		}
+		if (!isClaimed) {
+			return;
+		}
+		// clouds are removed from the last slot to the first, so removing
+		// one never moves a cloud that is still waiting to be removed
+		for (int cloud = gasClouds.size() - 1; cloud >= 0; cloud--) {
+			if (claimants[cloud] >= 0) {
+				taxis[claimants[cloud]].addFuel(GasCloud.FUEL);
+				removeGasCloud(cloud);
+			}
+		}
+	}
+
+	/**
+	 * Handles one taxi's warp star click and its planets, and decides
+	 * whether its game has ended.
+	 *
+	 * @param i is the index of the taxi
+	 * @return void
+	 */
+	private void land(int i) {
+		if (outcomes[i] != FLYING) {
+			return;
+		}
+		Taxi taxi = taxis[i];
+		InputSnapshot input = inputs[i];
+		IntList nearby = nearbyObjects[i];
+		if (input.isPressed(InputSnapshot.Key.MOUSE)) {
+			int star = WarpStar.pick(level.warpStars, warpStarGrid,
+					input.getMouseX(), input.getMouseY(), nearby);
+			if (star >= 0) {
+				WarpStar.handleNavigation(level.warpStars, star, taxi);
+			}
+		}
+		nearby.clear();
+		taxi.queryPath(planetGrid, Level.PLANET_SIZE, nearby);
+		for (int j = 0; j < nearby.size() && outcomes[i] == FLYING; j++) {
+			int planet = nearby.get(j);
+			boolean isDestination = planet == destinations[i];
+			boolean isLanding = planet == stopPlanets[i]
+					? Planet.handleContact(taxi, isDestination)
+					: Planet.handleLanding(level.planets, planet, taxi,
+							isDestination);
+			if (isLanding) {
+				destinations[i]++;
+				if (destinations[i] == level.planets.size()) {
+					finish(i, BatchRunner.WON);
+				}
+			}
+		}
+		if (outcomes[i] != FLYING) {
+			return;
+		} else if (taxi.hasCrashed()) {
+			finish(i, BatchRunner.CRASHED);
+		} else if (taxi.getFuel() <= 0) {
+			finish(i, BatchRunner.OUT_OF_FUEL);
+		}
+	}
+
+	/**
+	 * Ends the game of one taxi.
+	 *
+	 * @param i is the index of the taxi
+	 * @param outcome is how its game ended, like BatchRunner.WON
+	 * @return void
+	 */
+	private void finish(int i, byte outcome) {
+		outcomes[i] = outcome;
+		synchronized (this) {
+			flying--;
+		}
+	}
+
+	/**
+	 * Removes a collected gas cloud from the level. The last gas cloud in
+	 * the store takes its slot, so the grid is told about that.
+	 *
+	 * @param slot is the slot of the gas cloud being removed
+	 * @return void
+	 */
+	private void removeGasCloud(int slot) {
+		EntityStore gasClouds = level.gasClouds;
+		gasCloudGrid.remove(slot, gasClouds.x[slot], gasClouds.y[slot]);
+		int moved = gasClouds.swapRemove(slot);
+		if (moved >= 0) {
+			gasCloudGrid.move(moved, slot, gasClouds.x[slot],
+					gasClouds.y[slot]);
+		}
+	}
+
+	/**
+	 * This accessor retrieves the level that the taxis are flying in.
+	 *
+	 * @return the level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * This accessor retrieves one taxi of the fleet.
+	 *
+	 * @param i is the index of the taxi
+	 * @return the taxi
+	 */
+	public Taxi getTaxi(int i) {
+		return taxis[i];
+	}
+
+	/**
+	 * This accessor retrieves the fares one taxi has completed.
+	 *
+	 * @param i is the index of the taxi
+	 * @return the number of fares completed
+	 */
+	public int getFares(int i) {
+		return destinations[i];
+	}
+
+	/**
+	 * This accessor retrieves how one taxi's game ended.
+	 *
+	 * @param i is the index of the taxi
+	 * @return FLYING, or an outcome like BatchRunner.WON
+	 */
+	public byte getOutcome(int i) {
+		return outcomes[i];
+	}
+
+	public int size() {
+		return taxis.length;
+	}
+
+	public int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Plays one level with a fleet of taxis and prints how they did.
+	 *
+	 * @param args is the number of taxis, then optionally the seed, the
+	 * level file (or "random") and the most ticks to play
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java Fleet taxis [seed] [levelFile] "
+					+ "[maxTicks]");
+			return;
+		}
+		int taxiCount = Integer.parseInt(args[0]);
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		String levelFilename = args.length > 2 && !args[2].equals("random")
+				? args[2] : null;
+		int maxTicks = args.length > 3 ? Integer.parseInt(args[3])
+				: BatchRunner.DEFAULT_MAX_TICKS;
+
+		Fleet fleet = new Fleet(new Random(seed), levelFilename, taxiCount);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long start = System.nanoTime();
+		int ticks = fleet.run(pool, maxTicks);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		int[] totals = new int[4];
+		long fares = 0;
+		for (int i = 0; i < taxiCount; i++) {
+			byte outcome = fleet.getOutcome(i);
+			totals[outcome == FLYING ? BatchRunner.TIMED_OUT : outcome]++;
+			fares += fleet.getFares(i);
+		}
+		System.out.println("won: " + totals[BatchRunner.WON] + ", crashed: "
+				+ totals[BatchRunner.CRASHED] + ", out of fuel: "
+				+ totals[BatchRunner.OUT_OF_FUEL] + ", timed out: "
+				+ totals[BatchRunner.TIMED_OUT]);
+		System.out.println("average fares: "
+				+ (double) fares / Math.max(1, taxiCount) + " of "
+				+ fleet.getLevel().planets.size() + ", gas clouds left: "
+				+ fleet.getLevel().gasClouds.size());
+		System.out.println(ticks + " ticks of " + taxiCount + " taxis in "
+				+ seconds + "s on " + pool.getParallelism() + " threads ("
+				+ (long) (ticks * (double) taxiCount / seconds)
+				+ " taxi ticks/s)");
+	}
+
+	/**
+	 * A StepTask runs one step of a tick for a range of the fleet's taxis,
+	 * splitting it in half for other threads to steal until the range is
+	 * small.
+	 */
+	private class StepTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// the steps of a tick that are split across threads
+		private static final int MOVE = 0;
+		private static final int LAND = 1;
+
+		private int step;	// MOVE or LAND
+		private int from;	// index of the first taxi to step
+		private int to;		// index after the last taxi to step
+
+		private StepTask(int step, int from, int to) {
+			this.step = step;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= TAXIS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					if (step == MOVE) {
+						move(i);
+					} else {
+						land(i);
+					}
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new StepTask(step, from, middle),
+						new StepTask(step, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,299 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The FrameStats class measures where the time of each frame goes. Level
+ * times each phase of a tick (the taxi, the Gas clouds, the warp stars and
+ * the planets), the HUD and the render pass with System.nanoTime(), adds
+ * the times up for a whole frame, and hands them over here once at the end
+ * of the frame along with the frame's total time, the bytes it allocated,
+ * how many of each object the level had, and what the RenderQueue drew.
+ * Every metric is counted in a Histogram, so its p50, p99 and max can be
+ * reported.
+ * <br/><br/>
+ * The stats are off unless Java is started with -Dwarpstar.stats=true.
+ * ENABLED is a constant, so while it is false the JIT compiler removes
+ * every check of it, and measuring costs nothing. While the stats are on:
+ * <tt><ul>
+ * <li>every warpstar.stats.interval milliseconds (5000 by default) the
+ * frames since the last export are appended as CSV rows to the file
+ * warpstar.stats.file (frame-stats.csv by default), and once more when
+ * Java exits</li>
+ * <li>the frames since the start (or the last reset) are shown through JMX
+ * as WarpStarTaxi:type=FrameStats (see FrameStatsMXBean)</li>
+ * </ul></tt>
+ * Levels on many threads can record at once, since each one only locks
+ * the stats once per frame.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class FrameStats implements FrameStatsMXBean {
+
+	// whether frames are measured at all
+	public static final boolean ENABLED = Boolean.getBoolean("warpstar.stats");
+
+	// the metrics of a frame, which index the array passed to record()
+	public static final int TAXI = 0;				// nanoseconds
+	public static final int GAS_CLOUDS = 1;			// nanoseconds
+	public static final int WARP_STARS = 2;			// nanoseconds
+	public static final int PLANETS = 3;			// nanoseconds
+	public static final int HUD = 4;				// nanoseconds
+	public static final int RENDER = 5;				// nanoseconds
+	public static final int FRAME = 6;				// nanoseconds
+	public static final int ALLOCATED = 7;			// bytes
+	public static final int TICKS = 8;
+	public static final int GAS_CLOUD_COUNT = 9;
+	public static final int WARP_STAR_COUNT = 10;
+	public static final int PLANET_COUNT = 11;
+	public static final int DRAWN = 12;			// objects drawn
+	public static final int CULLED = 13;		// objects outside the window
+	public static final int BATCHES = 14;		// appearances drawn
+	public static final int METRICS = 15;
+
+	private static final String[] METRIC_NAMES = { "taxi_ns", "gas_clouds_ns",
+			"warp_stars_ns", "planets_ns", "hud_ns", "render_ns", "frame_ns",
+			"allocated_bytes", "ticks", "gas_clouds", "warp_stars", "planets",
+			"drawn", "culled", "batches" };
+
+	private static final String OBJECT_NAME = "WarpStarTaxi:type=FrameStats";
+	private static final String CSV_HEADER =
+			"time_ms,metric,frames,p50,p99,max";
+
+	// counts the bytes allocated by a thread, or null when this Java can't
+	private static final com.sun.management.ThreadMXBean THREADS =
+			ENABLED ? findThreadMXBean() : null;
+
+	// the stats that every level records to, or null while they are off
+	private static final FrameStats INSTANCE = ENABLED ? start() : null;
+
+	// initialized variables
+	private Histogram[] sinceExport = newHistograms();	// exported as CSV
+	private Histogram[] sinceReset = newHistograms();	// shown through JMX
+	private String filename;
+	private Object fileLock = new Object();	// held while writing the file
+
+	/**
+	 * Initializes the stats, which are exported to the specified file.
+	 *
+	 * @param filename is the name of the CSV file that the stats are
+	 * appended to
+	 */
+	private FrameStats(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Creates the stats, registers them with JMX, and starts exporting them.
+	 *
+	 * @return the stats
+	 */
+	private static FrameStats start() {
+		final FrameStats stats = new FrameStats(
+				System.getProperty("warpstar.stats.file", "frame-stats.csv"));
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(stats,
+					new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			System.err.println("FrameStats: " + e.getMessage());
+		}
+		long interval = Long.getLong("warpstar.stats.interval", 5000);
+		ScheduledExecutorService exporter =
+				Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "FrameStats export");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		Runnable export = new Runnable() {
+			public void run() {
+				stats.export();
+			}
+		};
+		exporter.scheduleAtFixedRate(export, interval, interval,
+				TimeUnit.MILLISECONDS);
+		// the last frames are exported too, however short the run was
+		Runtime.getRuntime().addShutdownHook(new Thread(export));
+		return stats;
+	}
+
+	/**
+	 * Finds the bean that counts the bytes each thread allocates.
+	 *
+	 * @return the bean, or null when this Java can't count them
+	 */
+	private static com.sun.management.ThreadMXBean findThreadMXBean() {
+		try {
+			Object threads = ManagementFactory.getThreadMXBean();
+			if (threads instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean allocations =
+						(com.sun.management.ThreadMXBean) threads;
+				if (allocations.isThreadAllocatedMemorySupported()) {
+					allocations.setThreadAllocatedMemoryEnabled(true);
+					return allocations;
+				}
+			}
+		} catch (LinkageError e) {
+			// this Java has no com.sun.management
+		} catch (UnsupportedOperationException e) {
+			// this Java can't count allocations
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the clock that phases are timed with.
+	 *
+	 * @return System.nanoTime(), or 0 while the stats are off
+	 */
+	public static long now() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Counts the bytes the current thread has allocated so far.
+	 *
+	 * @return the number of bytes, or 0 while the stats are off or when this
+	 * Java can't count them
+	 */
+	public static long allocatedBytes() {
+		if (!ENABLED || THREADS == null) {
+			return 0;
+		}
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Records the metrics of one frame, and then sets them all back to 0 so
+	 * that the array can be used for the next frame. Nothing is recorded
+	 * while the stats are off.
+	 *
+	 * @param frame holds a value for each metric, like frame[TAXI]
+	 * @return void
+	 */
+	public static void record(long[] frame) {
+		if (!ENABLED) {
+			return;
+		}
+		INSTANCE.add(frame);
+		java.util.Arrays.fill(frame, 0);
+	}
+
+	/**
+	 * Records the metrics of one frame.
+	 *
+	 * @param frame holds a value for each metric
+	 * @return void
+	 */
+	private synchronized void add(long[] frame) {
+		for (int i = 0; i < METRICS; i++) {
+			sinceExport[i].record(frame[i]);
+			sinceReset[i].record(frame[i]);
+		}
+	}
+
+	/**
+	 * Appends a row for each metric of the frames since the last export to
+	 * the CSV file, and then starts counting again. Nothing is written when
+	 * there were no frames.
+	 *
+	 * @return void
+	 */
+	private void export() {
+		Histogram[] exported;
+		synchronized (this) {
+			if (sinceExport[FRAME].getCount() == 0) {
+				return;
+			}
+			exported = sinceExport;
+			sinceExport = newHistograms();
+		}
+		synchronized (fileLock) {
+			java.io.File file = new java.io.File(filename);
+			boolean isNew = file.length() == 0;
+			try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+				if (isNew) {
+					out.println(CSV_HEADER);
+				}
+				long time = System.currentTimeMillis();
+				for (int i = 0; i < METRICS; i++) {
+					out.println(time + "," + METRIC_NAMES[i] + ","
+							+ exported[i].getCount() + ","
+							+ exported[i].getPercentile(0.5) + ","
+							+ exported[i].getPercentile(0.99) + ","
+							+ exported[i].getMax());
+				}
+			} catch (IOException e) {
+				System.err.println("FrameStats: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty histogram for each metric.
+	 *
+	 * @return the histograms
+	 */
+	private static Histogram[] newHistograms() {
+		Histogram[] histograms = new Histogram[METRICS];
+		for (int i = 0; i < METRICS; i++) {
+			histograms[i] = new Histogram();
+		}
+		return histograms;
+	}
+
+	/**
+	 * Finds a percentile of every metric since the last reset.
+	 *
+	 * @param fraction is the fraction, like 0.99 for the 99th percentile
+	 * @return the percentile of each metric
+	 */
+	private synchronized long[] getPercentiles(double fraction) {
+		long[] values = new long[METRICS];
+		for (int i = 0; i < METRICS; i++) {
+			values[i] = sinceReset[i].getPercentile(fraction);
+		}
+		return values;
+	}
+
+	public String[] getMetricNames() {
+		return METRIC_NAMES.clone();
+	}
+
+	public long[] getP50() {
+		return getPercentiles(0.5);
+	}
+
+	public long[] getP99() {
+		return getPercentiles(0.99);
+	}
+
+	public synchronized long[] getMax() {
+		long[] values = new long[METRICS];
+		for (int i = 0; i < METRICS; i++) {
+			values[i] = sinceReset[i].getMax();
+		}
+		return values;
+	}
+
+	public synchronized long getFrameCount() {
+		return sinceReset[FRAME].getCount();
+	}
+
+	public synchronized void reset() {
+		for (int i = 0; i < METRICS; i++) {
+			sinceReset[i].reset();
+		}
+	}
+}
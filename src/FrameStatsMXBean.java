@@ -0,0 +1,33 @@
+/**
+ * The FrameStatsMXBean interface is how FrameStats shows up in JMX tools
+ * like JConsole, under the name WarpStarTaxi:type=FrameStats. Each array
+ * attribute holds one value for every metric, in the order of
+ * getMetricNames().
+ *
+ * @author Susie C. and Krishna P.
+ */
+public interface FrameStatsMXBean {
+
+	String[] getMetricNames();
+
+	long[] getP50();
+
+	long[] getP99();
+
+	long[] getMax();
+
+	/**
+	 * This accessor retrieves the number of frames recorded since the stats
+	 * were started or last reset.
+	 *
+	 * @return the number of frames
+	 */
+	long getFrameCount();
+
+	/**
+	 * Forgets every frame recorded so far.
+	 *
+	 * @return void
+	 */
+	void reset();
+}
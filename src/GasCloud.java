@@ -1,73 +1,94 @@
 /**
  * The GasCloud class has its own methods which are called in the level
- * class. These methods include the constructor which constructs the graphic
- * image of the GasCloud and implements its abilities in the game.
- * 
- * Bugs: (None that I'm aware of!) 
- * 
- * @author Susie C. and Krishna P. 
+ * class. The gas clouds themselves are kept in an EntityStore, and these
+ * methods add them to a store and implement their abilities in the game.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
  */
 public class GasCloud {
 
-	// initialized variables
-	private Graphic graphic;
-	private float rotationSpeed;
-	private boolean shouldRemove;
+	// the amount of fuel that the taxi gets from each gas cloud
+	public static final float FUEL = 20;
 
 	/**
-	 * Initializes a new GasCloud object to be displayed at the specified 
-	 * initial position and orientation.
+	 * Adds a new gas cloud to be displayed at the specified initial
+	 * position and orientation.
 	 *
-	 * @param x is the initial horizontal position for this object's graphic
-	 * @param y is the initial vertical position for this object's graphic
-	 * @param direction is the initial orientation for this object's graphic
-	 * @return (description of the return value)
+	 * @param gasClouds is the store that the new gas cloud is added to
+	 * @param x is the initial horizontal position for this object
+	 * @param y is the initial vertical position for this object
+	 * @param direction is the initial orientation for this object
+	 * @return the slot of the new gas cloud in the store
 	 */
-	public GasCloud(float x, float y, float direction) {
-		graphic = new Graphic("GAS");
-		graphic.setPosition(x, y);
-		graphic.setDirection(direction);
-
+	public static int add(EntityStore gasClouds, float x, float y,
+			float direction) {
+		return gasClouds.add(EntityStore.GAS, x, y, direction);
 	}
-	
+
 	/**
-	 * This method rotates the gas cloud before drawing in its new orientation.
+	 * This method rotates every gas cloud in a store to its new orientation.
 	 *
+	 * @param gasClouds is the store of gas clouds to rotate
 	 * @param time is the time in milliseconds that have elapsed since the
 	 * last time this method was called, used to control speed of objects
 	 * in the game.
 	 * @return void
 	 */
-	public void update(int time) {
-		rotationSpeed = -0.001f * time;
-		graphic.setDirection(graphic.getDirection() - (rotationSpeed));
-		graphic.draw();
+	public static void update(EntityStore gasClouds, int time) {
+		float rotationSpeed = -0.001f * time;
+		float[] direction = gasClouds.direction;
+		float fullTurn = (float) (2 * Math.PI);
+		for (int i = 0; i < gasClouds.size(); i++) {
+			// keeps the direction between 0 and a full turn like Graphic does
+			float turned = (direction[i] - rotationSpeed) % fullTurn;
+			direction[i] = turned < 0 ? turned + fullTurn : turned;
+		}
 	}
 
 	/**
-	 * This accessor method retrieves whether this object should be 
-	 * remove from the level yet or not.
+	 * This method detects whether the player's taxi has collided with a gas
+	 * cloud anywhere along its path during its last update, or not. If it
+	 * has, that taxi will get more fuel and the gas cloud should be removed
+	 * from the level.
 	 *
-	 * @return true after the player has collected fuel from this object,
+	 * @param gasClouds is the store that holds the gas cloud
+	 * @param slot is the slot of the gas cloud in the store
+	 * @param taxi is the taxi that will get addition fuel if it is colliding
+	 * with this gas cloud
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return true after the player has collected fuel from this gas cloud,
 	 * and returns false otherwise
 	 */
-	public boolean shouldRemove() {
-		return shouldRemove;
+	public static boolean handleFueling(EntityStore gasClouds, int slot,
+			Taxi taxi, int width, int height) {
+		if (isTouching(gasClouds, slot, taxi, width, height)) {
+			taxi.addFuel(FUEL);
+			return true;
+		}
+		return false;
 	}
 
 	/**
-	 * This method detects whether the player's taxi is currently colliding 
-	 * with this gas cloud object or not. If it is, that taxi will get more 
-	 * fuel and this gas cloud will be marked for removal from the level.
+	 * This method detects whether a taxi touched a gas cloud anywhere along
+	 * its path during its last update, so that a fast taxi can't fly past a
+	 * gas cloud without collecting it.
 	 *
-	 * @param taxi is the taxi that will get addition fuel if it is colliding 
-	 * with this GasCloud object
-	 * @return void
+	 * @param gasClouds is the store that holds the gas cloud
+	 * @param slot is the slot of the gas cloud in the store
+	 * @param taxi is the taxi that might have touched this gas cloud
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return true when the taxi touched this gas cloud, otherwise false
 	 */
-	public void handleFueling(Taxi taxi) {
-		if (taxi.checkCollision(this.graphic)) {
-			taxi.addFuel(20);
-			shouldRemove = true;
-		}
+	public static boolean isTouching(EntityStore gasClouds, int slot,
+			Taxi taxi, int width, int height) {
+		float x = gasClouds.x[slot];
+		float y = gasClouds.y[slot];
+		return taxi.checkCollision(x, y, EntityStore.GAS_SIZE)
+				|| taxi.findContact(x, y, EntityStore.GAS_SIZE, width, height)
+				>= 0;
 	}
 }
@@ -0,0 +1,69 @@
+import java.util.Random;
+
+/**
+ * The HeadlessRunner class simulates levels without opening the GameEngine
+ * window, so that levels can be tested on machines without a display. Each
+ * level is updated with a fixed frame time for a number of frames (or until
+ * it advances or quits), and the simulated frames per second are printed.
+ *
+ * Usage: java HeadlessRunner frames seed [levelFile ...]
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class HeadlessRunner {
+
+	// the GameEngine caps its frame time at this many milliseconds
+	public static final int FRAME_TIME = 30;
+
+	/**
+	 * Simulates a single level headless for up to the specified number of
+	 * frames.
+	 *
+	 * @param level is the headless level to simulate
+	 * @param frames is the largest number of frames to simulate
+	 * @return the number of frames that were simulated before the level
+	 * advanced, quit or ran out of frames
+	 */
+	public static int run(Level level, int frames) {
+		for (int i = 0; i < frames; i++) {
+			if (!level.update(FRAME_TIME).equals("CONTINUE")) {
+				return i + 1;
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Runs every level named on the command line (or a single random level
+	 * when none are named) headless and reports how fast it was simulated.
+	 *
+	 * @param args is the number of frames, the random seed, and then the
+	 * sequence of custom level filenames to simulate
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: java HeadlessRunner frames seed "
+					+ "[levelFile ...]");
+			return;
+		}
+		int frames = Integer.parseInt(args[0]);
+		Random rng = new Random(Long.parseLong(args[1]));
+		String[] levels = new String[Math.max(1, args.length - 2)];
+		for (int i = 2; i < args.length; i++) {
+			levels[i - 2] = args[i];
+		}
+
+		for (int i = 0; i < levels.length; i++) {
+			long start = System.nanoTime();
+			Level level = new Level(rng, levels[i], true);
+			int simulated = run(level, frames);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println((levels[i] == null ? "random" : levels[i])
+					+ ": " + simulated + " frames in " + seconds + "s ("
+					+ (int) (simulated / seconds) + " frames/s)");
+			System.out.println(level.getHUDMessage());
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * The Histogram class counts how often each value (like a number of
+ * nanoseconds) was recorded, so that percentiles can be found without
+ * keeping every value. Small values are counted exactly, and larger values
+ * are counted in buckets that are never more than 1/16th of their value
+ * wide, so any percentile is within about 6% of the real value. Recording a
+ * value never creates any objects.
+ * <br/><br/>
+ * A Histogram is not thread safe.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class Histogram {
+
+	// each power of two is split into this many buckets
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+	// initialized variables
+	private long[] counts = new long[BUCKETS];
+	private long count;
+	private long max;
+
+	/**
+	 * Counts one more value.
+	 *
+	 * @param value is the value, where negative values count as 0
+	 * @return void
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts[bucketOf(value)]++;
+		count++;
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Finds the value that the specified fraction of the recorded values are
+	 * less than or equal to.
+	 *
+	 * @param fraction is the fraction, like 0.99 for the 99th percentile
+	 * @return the largest value in that percentile's bucket (but never more
+	 * than the largest value recorded), or 0 when nothing was recorded
+	 */
+	public long getPercentile(double fraction) {
+		long rank = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(max, highestValueOf(i));
+			}
+		}
+		return max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Forgets every recorded value.
+	 *
+	 * @return void
+	 */
+	public void reset() {
+		java.util.Arrays.fill(counts, 0);
+		count = 0;
+		max = 0;
+	}
+
+	/**
+	 * Adds every value recorded by another histogram to this one.
+	 *
+	 * @param other is the histogram whose values are added
+	 * @return void
+	 */
+	public void add(Histogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Finds the bucket that a value is counted in.
+	 *
+	 * @param value is the value, which must not be negative
+	 * @return the index of its bucket
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS * (shift + 1) + subBucket;
+	}
+
+	/**
+	 * Finds the largest value that is counted in a bucket.
+	 *
+	 * @param bucket is the index of the bucket
+	 * @return the largest value in that bucket
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
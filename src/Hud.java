@@ -0,0 +1,138 @@
+/**
+ * The Hud class keeps the text shown in the upper left corner of the game
+ * window. It remembers the values it last showed (the fuel rounded to a
+ * tenth, the fares done and the total, and whether the game was lost) and
+ * marks itself dirty when one of them changes. The text is only formatted
+ * again, into a reused buffer, when it is dirty, so frames where nothing
+ * changed return the same String without creating any objects.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class Hud {
+
+	// states of the game that the HUD shows
+	public static final byte PLAYING = 0;
+	public static final byte OUT_OF_FUEL = 1;
+	public static final byte CRASHED = 2;
+
+	// initialized variables
+	private int fuelTenths;		// fuel shown, in tenths of a unit
+	private int fares;
+	private int totalFares;
+	private byte state;
+	private boolean isDirty = true;
+	private StringBuilder buffer = new StringBuilder(64);
+	private String text;
+
+	/**
+	 * Updates every value that the HUD shows from a taxi and the level's
+	 * progress.
+	 *
+	 * @param taxi is the taxi whose fuel and state are shown
+	 * @param fares is the number of fares completed
+	 * @param totalFares is the number of fares in the level, or -1 when it
+	 * never runs out of fares
+	 * @return void
+	 */
+	public void update(Taxi taxi, int fares, int totalFares) {
+		if (taxi.hasCrashed()) {
+			setState(CRASHED);
+		} else if (taxi.getFuel() <= 0) {
+			setState(OUT_OF_FUEL);
+		} else {
+			setState(PLAYING);
+		}
+		setFuel(taxi.getFuel());
+		setFares(fares, totalFares);
+	}
+
+	/**
+	 * Changes the fuel shown, which only marks the HUD dirty when the fuel
+	 * rounded to a tenth is different.
+	 *
+	 * @param fuel is the amount of fuel the taxi holds
+	 * @return void
+	 */
+	public void setFuel(float fuel) {
+		int tenths = Math.round(fuel * 10);
+		if (tenths != fuelTenths) {
+			fuelTenths = tenths;
+			isDirty |= state == PLAYING;
+		}
+	}
+
+	/**
+	 * Changes the fares shown.
+	 *
+	 * @param fares is the number of fares completed
+	 * @param totalFares is the number of fares in the level, or -1 when it
+	 * never runs out of fares
+	 * @return void
+	 */
+	public void setFares(int fares, int totalFares) {
+		if (fares != this.fares || totalFares != this.totalFares) {
+			this.fares = fares;
+			this.totalFares = totalFares;
+			isDirty |= state == PLAYING;
+		}
+	}
+
+	/**
+	 * Changes whether the game is being played or was lost.
+	 *
+	 * @param state is PLAYING, OUT_OF_FUEL or CRASHED
+	 * @return void
+	 */
+	public void setState(byte state) {
+		if (state != this.state) {
+			this.state = state;
+			isDirty = true;
+		}
+	}
+
+	/**
+	 * This accessor retrieves the text of the HUD, formatting it again only
+	 * when something it shows has changed.
+	 *
+	 * @return the text to show in the upper left corner of the window
+	 */
+	public String getText() {
+		if (isDirty) {
+			if (state == OUT_OF_FUEL) {
+				text = "You've run out of fuel!" + "\n"
+						+ "Press the SPACEBAR to end this game.";
+			} else if (state == CRASHED) {
+				text = "You've crashed into a planet!" + "\n"
+						+ "Press the SPACEBAR to end this game.";
+			} else {
+				buffer.setLength(0);
+				buffer.append("Fuel: ");
+				appendTenths(buffer, fuelTenths);
+				buffer.append("\nFares: ").append(fares);
+				if (totalFares >= 0) {
+					buffer.append('/').append(totalFares);
+				}
+				text = buffer.toString();
+			}
+			isDirty = false;
+		}
+		return text;
+	}
+
+	/**
+	 * Writes a number of tenths as a decimal number, like 29.9 for 299.
+	 *
+	 * @param buffer is where the number is written
+	 * @param tenths is the number in tenths
+	 * @return void
+	 */
+	private static void appendTenths(StringBuilder buffer, int tenths) {
+		if (tenths < 0) {
+			buffer.append('-');
+			tenths = -tenths;
+		}
+		buffer.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+	}
+}
@@ -0,0 +1,223 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The InputRecorder class records a play session, so that it can be played
+ * again headless by an InputReplayer. A recording (.wstr) holds the seed of
+ * the level's Random, the level file (or the number of objects of a random
+ * level), the screen size, and then every frame's time and input. Only the
+ * changes are written, so a long session makes a tiny file:
+ * <pre>
+ *     "WSTR"                               4 bytes
+ *     version                              int
+ *     seed                                 long
+ *     has a level file                     boolean
+ *     level filename or object count       UTF or int
+ *     width, height                        2 ints
+ *     then, until END or the end of file:
+ *     frames the same as the last one      varint
+ *     what changed                         byte of TIME, HELD, PRESSED, END
+ *     new frame time (TIME)                varint
+ *     keys held (HELD)                     byte
+ *     keys pressed (PRESSED)               byte
+ *     mouse x and y (when it was clicked)  2 floats
+ * </pre>
+ * A frame is the same as the last one when it has the same time and keys
+ * held, and nothing was pressed. The mouse position is only written with
+ * a click, since that's the only time the game looks at it.
+ * <br/><br/>
+ * Sessions are only recorded when Java is started with
+ * -Dwarpstar.record=directory, and then each level played in the
+ * GameEngine window gets its own file in that directory.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class InputRecorder {
+
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".wstr";
+	// the system property naming the directory that sessions are saved in
+	public static final String PROPERTY = "warpstar.record";
+
+	static final byte[] MAGIC = {'W', 'S', 'T', 'R'};
+
+	// bits of the byte that says what changed in a frame
+	static final int TIME = 1;
+	static final int HELD = 2;
+	static final int PRESSED = 4;
+	static final int END = 0x80;
+
+	// initialized variables
+	private DataOutputStream output;
+	private Thread closer;			// closes the file if Java exits first
+	private int sameFrames;			// frames the same as the last one
+	private int time;				// time of the last frame
+	private int held;				// keys held in the last frame
+
+	/**
+	 * Initializes a recorder that writes to a stream, and writes the header
+	 * of the recording.
+	 *
+	 * @param output is where the recording is written
+	 * @param seed is the seed of the level's Random
+	 * @param levelFilename is the level file that was loaded, or null for a
+	 * random level
+	 * @param objectCount is the number of each type of object in a random
+	 * level
+	 * @param width is the width of the screen
+	 * @param height is the height of the screen
+	 * @throws IOException when the header can't be written
+	 */
+	public InputRecorder(DataOutputStream output, long seed,
+			String levelFilename, int objectCount, int width, int height)
+			throws IOException {
+		this.output = output;
+		output.write(MAGIC);
+		output.writeInt(VERSION);
+		output.writeLong(seed);
+		output.writeBoolean(levelFilename != null);
+		if (levelFilename != null) {
+			output.writeUTF(levelFilename);
+		} else {
+			output.writeInt(objectCount);
+		}
+		output.writeInt(width);
+		output.writeInt(height);
+	}
+
+	/**
+	 * Starts recording a level to a new file in a directory. Any problem is
+	 * printed instead of thrown, since the game can be played without it.
+	 *
+	 * @param directory is the directory that the recording is saved in
+	 * @param seed is the seed of the level's Random
+	 * @param levelFilename is the level file that was loaded, or null for a
+	 * random level
+	 * @param objectCount is the number of each type of object in a random
+	 * level
+	 * @param width is the width of the screen
+	 * @param height is the height of the screen
+	 * @return the recorder, or null when the file couldn't be created
+	 */
+	public static InputRecorder start(String directory, long seed,
+			String levelFilename, int objectCount, int width, int height) {
+		File file = new File(directory, "session-" + System.currentTimeMillis()
+				+ "-" + Long.toHexString(seed) + EXTENSION);
+		try {
+			new File(directory).mkdirs();
+			final InputRecorder recorder = new InputRecorder(
+					new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file))), seed, levelFilename,
+					objectCount, width, height);
+			recorder.closer = new Thread() {
+				public void run() {
+					recorder.close();
+				}
+			};
+			Runtime.getRuntime().addShutdownHook(recorder.closer);
+			return recorder;
+		} catch (IOException e) {
+			System.err.println(file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Records one frame.
+	 *
+	 * @param time is the time in milliseconds passed to update()
+	 * @param input is the keyboard and mouse captured for the frame
+	 * @return void
+	 */
+	public synchronized void record(int time, InputSnapshot input) {
+		if (output == null) {
+			return;
+		}
+		int changes = 0;
+		if (time != this.time) {
+			changes |= TIME;
+		}
+		if (input.getHeld() != held) {
+			changes |= HELD;
+		}
+		if (input.getPressed() != 0) {
+			changes |= PRESSED;
+		}
+		if (changes == 0) {
+			sameFrames++;
+			return;
+		}
+		try {
+			writeVarint(output, sameFrames);
+			output.writeByte(changes);
+			if ((changes & TIME) != 0) {
+				writeVarint(output, time);
+			}
+			if ((changes & HELD) != 0) {
+				output.writeByte(input.getHeld());
+			}
+			if ((changes & PRESSED) != 0) {
+				output.writeByte(input.getPressed());
+				if (input.isPressed(InputSnapshot.Key.MOUSE)) {
+					output.writeFloat(input.getMouseX());
+					output.writeFloat(input.getMouseY());
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("InputRecorder: " + e.getMessage());
+		}
+		sameFrames = 0;
+		this.time = time;
+		this.held = input.getHeld();
+	}
+
+	/**
+	 * Writes the last frames and closes the recording. Nothing more is
+	 * recorded after this.
+	 *
+	 * @return void
+	 */
+	public synchronized void close() {
+		if (output == null) {
+			return;
+		}
+		try {
+			writeVarint(output, sameFrames);
+			output.writeByte(END);
+			output.close();
+		} catch (IOException e) {
+			System.err.println("InputRecorder: " + e.getMessage());
+		}
+		output = null;
+		try {
+			if (closer != null && closer != Thread.currentThread()) {
+				Runtime.getRuntime().removeShutdownHook(closer);
+			}
+		} catch (IllegalStateException e) {
+			// Java is already exiting, so the hook will find it closed
+		}
+	}
+
+	/**
+	 * Writes a number that isn't negative in as few bytes as it needs, 7
+	 * bits at a time, with the high bit set on every byte but the last.
+	 *
+	 * @param output is where the number is written
+	 * @param value is the number
+	 * @return void
+	 * @throws IOException when the number can't be written
+	 */
+	static void writeVarint(DataOutputStream output, int value)
+			throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+}
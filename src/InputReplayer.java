@@ -0,0 +1,222 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The InputReplayer class plays a session recorded by an InputRecorder
+ * again, headless and as fast as possible. The level is made again from
+ * the recorded seed, and every recorded frame is passed to update() with
+ * the same time and input, so the game plays out exactly as it did for the
+ * player. This makes a player's bug report easy to reproduce, and many
+ * recordings can be replayed to check that a change didn't alter the game.
+ * <br/><br/>
+ * One line is printed for each recording: how the level ended, the
+ * frames played, the fares completed and fuel left, and how much faster
+ * than real time it was replayed.
+ *
+ * Usage: java InputReplayer recording.wstr ...
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class InputReplayer {
+
+	// initialized variables, read from the recording's header
+	private DataInputStream input;
+	private long seed;
+	private String levelFilename;	// or null for a random level
+	private int objectCount;
+	private int width;
+	private int height;
+
+	// what the last replay did
+	private int frames;
+	private long playTime;			// milliseconds passed to update()
+
+	/**
+	 * Initializes a replayer by reading the header of a recording.
+	 *
+	 * @param input is where the recording is read from
+	 * @throws IOException when the recording can't be read, or is not a
+	 * recording of a supported version
+	 */
+	public InputReplayer(DataInputStream input) throws IOException {
+		this.input = input;
+		for (int i = 0; i < InputRecorder.MAGIC.length; i++) {
+			if (input.readByte() != InputRecorder.MAGIC[i]) {
+				throw new IOException("not a recording");
+			}
+		}
+		int version = input.readInt();
+		if (version != InputRecorder.VERSION) {
+			throw new IOException("unsupported version " + version);
+		}
+		seed = input.readLong();
+		if (input.readBoolean()) {
+			levelFilename = input.readUTF();
+			objectCount = Level.RANDOM_OBJECT_COUNT;
+		} else {
+			objectCount = input.readInt();
+		}
+		width = input.readInt();
+		height = input.readInt();
+	}
+
+	/**
+	 * Creates the level that was recorded, in the state it started in.
+	 *
+	 * @return a new headless level
+	 */
+	public Level createLevel() {
+		// a random level is copied from its template after the first replay
+		if (levelFilename == null) {
+			return new Level(new Random(seed), LevelTemplateCache.forSeed(seed,
+					objectCount, width, height), width, height);
+		}
+		return new Level(new Random(seed), levelFilename, objectCount, width,
+				height);
+	}
+
+	/**
+	 * Plays every recorded frame of a level, until the recording ends or the
+	 * level advances or quits.
+	 *
+	 * @param level is the level to play, as made by createLevel()
+	 * @return what the last call to update() returned, which is "CONTINUE"
+	 * when the recording ended during the level
+	 * @throws IOException when the recording can't be read
+	 */
+	public String replay(Level level) throws IOException {
+		frames = 0;
+		playTime = 0;
+		int time = 0;
+		int held = 0;
+		float mouseX = 0;
+		float mouseY = 0;
+		InputSnapshot same = InputSnapshot.NONE;	// a frame with no changes
+		while (true) {
+			int sameFrames = readVarint(input);
+			for (int i = 0; i < sameFrames; i++) {
+				String result = play(level, time, same);
+				if (!result.equals("CONTINUE")) {
+					return result;
+				}
+			}
+			int changes = input.read();
+			if (changes < 0 || (changes & InputRecorder.END) != 0) {
+				return "CONTINUE";
+			}
+			if ((changes & InputRecorder.TIME) != 0) {
+				time = readVarint(input);
+			}
+			if ((changes & InputRecorder.HELD) != 0) {
+				held = input.readUnsignedByte();
+			}
+			int pressed = 0;
+			if ((changes & InputRecorder.PRESSED) != 0) {
+				pressed = input.readUnsignedByte();
+				if ((pressed & InputSnapshot.Key.MOUSE.bit()) != 0) {
+					mouseX = input.readFloat();
+					mouseY = input.readFloat();
+				}
+			}
+			same = new InputSnapshot(held, 0, mouseX, mouseY);
+			String result = play(level, time,
+					new InputSnapshot(held, pressed, mouseX, mouseY));
+			if (!result.equals("CONTINUE")) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Plays one recorded frame.
+	 *
+	 * @param level is the level being replayed
+	 * @param time is the time in milliseconds of the frame
+	 * @param frameInput is the keyboard and mouse of the frame
+	 * @return what update() returned
+	 */
+	private String play(Level level, int time, InputSnapshot frameInput) {
+		frames++;
+		playTime += time;
+		level.setInput(frameInput);
+		return level.update(time);
+	}
+
+	/**
+	 * This accessor retrieves the number of frames the last replay played.
+	 *
+	 * @return the number of frames
+	 */
+	public int getFrames() {
+		return frames;
+	}
+
+	/**
+	 * This accessor retrieves how long the last replay took to play when it
+	 * was recorded.
+	 *
+	 * @return the game time in milliseconds
+	 */
+	public long getPlayTime() {
+		return playTime;
+	}
+
+	/**
+	 * Reads a number written by InputRecorder.writeVarint().
+	 *
+	 * @param input is where the number is read from
+	 * @return the number, or 0 at the end of the recording
+	 * @throws IOException when the number can't be read
+	 */
+	private static int readVarint(DataInputStream input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int next = input.read();
+			if (next < 0) {
+				return value;
+			}
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("corrupt recording");
+	}
+
+	/**
+	 * Replays each recording named on the command line and reports how its
+	 * level ended.
+	 *
+	 * @param args is the sequence of recordings to replay
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: java InputReplayer recording.wstr ...");
+			return;
+		}
+		for (int i = 0; i < args.length; i++) {
+			try (DataInputStream input = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(args[i])))) {
+				InputReplayer replayer = new InputReplayer(input);
+				Level level = replayer.createLevel();
+				long start = System.nanoTime();
+				String result = replayer.replay(level);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.println(args[i] + ": " + result + " after "
+						+ replayer.getFrames() + " frames, fares "
+						+ level.getDestinationPlanetIndex() + "/"
+						+ level.planets.size() + ", fuel "
+						+ level.getTaxi().getFuel() + " ("
+						+ replayer.getPlayTime() / 1000.0 + "s of play in "
+						+ seconds + "s)");
+			} catch (IOException e) {
+				System.err.println(args[i] + ": " + e.getMessage());
+			}
+		}
+	}
+}
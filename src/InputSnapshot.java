@@ -0,0 +1,184 @@
+/**
+ * The InputSnapshot class holds everything the player is doing with the
+ * keyboard and mouse at one moment: which keys are held, which were just
+ * pressed, and where the mouse is. A snapshot is captured from the
+ * GameEngine once per frame, and every object in the level reads from it
+ * instead of asking the GameEngine again, so handling input costs the same
+ * no matter how many objects there are. Snapshots never change once they
+ * are made, so they can be shared, saved and replayed.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public final class InputSnapshot {
+
+	/**
+	 * A Key is one control of the game, along with the names that the
+	 * GameEngine uses for the keys (or mouse button) that work it.
+	 */
+	public enum Key {
+		RIGHT("D", "RIGHT"),
+		LEFT("A", "LEFT"),
+		UP("W", "UP"),
+		DOWN("S", "DOWN"),
+		SPACE("SPACE"),
+		MOUSE("MOUSE");
+
+		private final String[] names;
+		private final int bit;
+
+		private Key(String... names) {
+			this.names = names;
+			this.bit = 1 << ordinal();
+		}
+
+		/**
+		 * This accessor retrieves the bit that stands for this key in the
+		 * masks of held and pressed keys.
+		 *
+		 * @return the bit of this key
+		 */
+		public int bit() {
+			return bit;
+		}
+	}
+
+	// a snapshot with nothing held or pressed, and the mouse at 0, 0
+	public static final InputSnapshot NONE = new InputSnapshot(0, 0, 0, 0);
+
+	private static final Key[] KEYS = Key.values();
+
+	// initialized variables
+	private final int held;		// a Key bit for each key being held
+	private final int pressed;	// a Key bit for each key just pressed
+	private final float mouseX;
+	private final float mouseY;
+
+	/**
+	 * Initializes a snapshot with the specified keys and mouse position.
+	 *
+	 * @param held holds the bit() of each key being held
+	 * @param pressed holds the bit() of each key that was just pressed
+	 * @param mouseX is the horizontal position of the mouse
+	 * @param mouseY is the vertical position of the mouse
+	 */
+	public InputSnapshot(int held, int pressed, float mouseX, float mouseY) {
+		this.held = held;
+		this.pressed = pressed;
+		this.mouseX = mouseX;
+		this.mouseY = mouseY;
+	}
+
+	/**
+	 * Captures the keyboard and mouse from the GameEngine. This must only be
+	 * called while the GameEngine is running.
+	 *
+	 * @return a snapshot of the player's input right now
+	 */
+	public static InputSnapshot capture() {
+		int held = 0;
+		int pressed = 0;
+		for (int i = 0; i < KEYS.length; i++) {
+			String[] names = KEYS[i].names;
+			for (int j = 0; j < names.length; j++) {
+				if (GameEngine.isKeyHeld(names[j])) {
+					held |= KEYS[i].bit;
+				}
+				if (GameEngine.isKeyPressed(names[j])) {
+					pressed |= KEYS[i].bit;
+				}
+			}
+		}
+		return new InputSnapshot(held, pressed, GameEngine.getMouseX(),
+				GameEngine.getMouseY());
+	}
+
+	/**
+	 * Determines whether a key is being held.
+	 *
+	 * @param key is the key
+	 * @return true when the key is held, otherwise false
+	 */
+	public boolean isHeld(Key key) {
+		return (held & key.bit) != 0;
+	}
+
+	/**
+	 * Determines whether a key was just pressed.
+	 *
+	 * @param key is the key
+	 * @return true when the key was pressed, otherwise false
+	 */
+	public boolean isPressed(Key key) {
+		return (pressed & key.bit) != 0;
+	}
+
+	public int getHeld() {
+		return held;
+	}
+
+	public int getPressed() {
+		return pressed;
+	}
+
+	public float getMouseX() {
+		return mouseX;
+	}
+
+	public float getMouseY() {
+		return mouseY;
+	}
+
+	/**
+	 * Combines this snapshot with a later one, so that presses in either are
+	 * kept. The keys held are the later ones, and the mouse position is
+	 * where the latest click happened (or the later position, without one).
+	 *
+	 * @param later is the snapshot taken after this one
+	 * @return the combined snapshot
+	 */
+	public InputSnapshot merge(InputSnapshot later) {
+		boolean isClickedLater = later.isPressed(Key.MOUSE);
+		boolean isClicked = isPressed(Key.MOUSE);
+		if (later.pressed == 0 && pressed == 0) {
+			return later;
+		}
+		return new InputSnapshot(later.held, pressed | later.pressed,
+				isClicked && !isClickedLater ? mouseX : later.mouseX,
+				isClicked && !isClickedLater ? mouseY : later.mouseY);
+	}
+
+	/**
+	 * Finds what this snapshot becomes once its presses have been handled.
+	 *
+	 * @return a snapshot with the same keys held, but none pressed
+	 */
+	public InputSnapshot withoutPresses() {
+		if (pressed == 0) {
+			return this;
+		}
+		return new InputSnapshot(held, 0, mouseX, mouseY);
+	}
+
+	public boolean equals(Object other) {
+		if (!(other instanceof InputSnapshot)) {
+			return false;
+		}
+		InputSnapshot input = (InputSnapshot) other;
+		return held == input.held && pressed == input.pressed
+				&& Float.compare(mouseX, input.mouseX) == 0
+				&& Float.compare(mouseY, input.mouseY) == 0;
+	}
+
+	public int hashCode() {
+		return ((held * 31 + pressed) * 31 + Float.floatToIntBits(mouseX)) * 31
+				+ Float.floatToIntBits(mouseY);
+	}
+
+	public String toString() {
+		return "held " + Integer.toBinaryString(held) + ", pressed "
+				+ Integer.toBinaryString(pressed) + ", mouse at " + mouseX + ", "
+				+ mouseY;
+	}
+}
@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * The IntList class is a growable list of int values, used where an
+ * ArrayList of Integer objects would allocate a new object for each value.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class IntList {
+
+	// initialized variables
+	private int[] values;
+	private int size;
+
+	/**
+	 * Initializes a new empty list.
+	 */
+	public IntList() {
+		this(8);
+	}
+
+	/**
+	 * Initializes a new empty list with room for the specified number of
+	 * values before it needs to grow.
+	 *
+	 * @param capacity is the number of values to make room for
+	 */
+	public IntList(int capacity) {
+		values = new int[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Adds a value to the end of this list.
+	 *
+	 * @param value is the value to add
+	 * @return void
+	 */
+	public void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * This accessor retrieves the value at an index of this list.
+	 *
+	 * @param index is the position of the value, from 0 to size() - 1
+	 * @return the value at that index
+	 */
+	public int get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * This accessor retrieves the number of values in this list.
+	 *
+	 * @return the number of values in this list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every value from this list, keeping its array.
+	 *
+	 * @return void
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Sorts the values of this list from smallest to largest.
+	 *
+	 * @return void
+	 */
+	public void sort() {
+		Arrays.sort(values, 0, size);
+	}
+
+	/**
+	 * Removes every value that is the same as the one before it, which
+	 * leaves each value only once in a sorted list.
+	 *
+	 * @return void
+	 */
+	public void removeDuplicates() {
+		if (size == 0) {
+			return;
+		}
+		int kept = 1;
+		for (int i = 1; i < size; i++) {
+			if (values[i] != values[kept - 1]) {
+				values[kept++] = values[i];
+			}
+		}
+		size = kept;
+	}
+}
@@ -1,8 +1,6 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
-import java.util.Scanner;
 
 /**
  * This Level class is responsible for managing all of the objects in your game
@@ -14,21 +12,75 @@ import java.util.Scanner;
  * <tt><ul>
  * <li>private Random rng</li>
  * <li>private Taxi taxi</li>
- * <li>private ArrayList<WarpStar> warpStars</li>
- * <li>private ArrayList<GasCloud> gasClouds</li>
- * <li>private ArrayList<Planet> planets</li>
+ * <li>private EntityStore warpStars</li>
+ * <li>private EntityStore gasClouds</li>
+ * <li>private EntityStore planets</li>
  * <li>private int destinationPlanetIndex</li>
  * </ul></tt>
+ * <br/><br/>
+ * A headless level that is steered by a Pilot never uses the GameEngine
+ * or any other shared state, so many of them can be simulated at once on
+ * different threads, as long as each one has its own Random.
+ * <br/><br/>
+ * A level named EndlessWorld.NAME never ends: the taxi flies from chunk to
+ * chunk of an EndlessWorld, and the stores only hold the chunk it is in.
+ * <br/><br/>
+ * While a LevelWatcher watches the level file, the edits made to it are
+ * applied to the stores as the level is played.
  */
 public class Level {	
 
+	// size of the GameEngine window, used when running without one
+	public static final int HEADLESS_WIDTH = 800;
+	public static final int HEADLESS_HEIGHT = 600;
+
+	// number of each type of object in a random level
+	public static final int RANDOM_OBJECT_COUNT = 6;
+
+	// milliseconds of game time simulated by each tick, and the most ticks
+	// that one call to update() will catch up on
+	public static final int TICK_TIME = 10;
+	public static final int MAX_TICKS_PER_UPDATE = 50;
+
+	// version of the snapshots made by snapshot()
+	public static final int SNAPSHOT_VERSION = 1;
+
+	// width and height of each cell in the collision grids, which is larger
+	// than any two objects that can collide with each other
+	static final float GRID_CELL_SIZE = 64;
+	static final float PLANET_SIZE = Math.max(EntityStore.PLANET_SIZE,
+			EntityStore.DESTINATION_SIZE);
+
 	// initialized variables and objects
 	private Taxi taxi; 
 	private int destinationPlanetIndex;
 	private Random rng;
-	ArrayList<WarpStar> warpStars = new ArrayList<WarpStar>();
-	ArrayList<GasCloud> gasClouds = new ArrayList<GasCloud>();
-	ArrayList<Planet> planets = new ArrayList<Planet>();
+	private int width;
+	private int height;
+	private boolean isHeadless;
+	private boolean isRendering;
+	private int unsimulatedTime;	// milliseconds not yet simulated by ticks
+	private int fastForwardTicks;	// ticks per update(), or 0 for real time
+	private Pilot pilot;			// steers instead of the player, or null
+	private InputRecorder recorder;	// records the player's input, or null
+	private EndlessWorld world;		// the chunks of an endless level, or null
+	private LevelWatcher watcher;	// reports edits to the level file, or null
+	// input not yet handled by a tick, with every press since the last one
+	private InputSnapshot pendingInput = InputSnapshot.NONE;
+	EntityStore warpStars = new EntityStore();
+	EntityStore gasClouds = new EntityStore();
+	EntityStore planets = new EntityStore();
+
+	// collision grids, which hold each object by its slot in its store
+	private SpatialGrid gasCloudGrid;
+	private SpatialGrid warpStarGrid;
+	private SpatialGrid planetGrid;
+	private IntList nearbyObjects = new IntList();
+	private Hud hud = new Hud();
+	private RenderQueue renderQueue;	// only made once this level is drawn
+	// metrics of the current frame, or null while FrameStats are off
+	private long[] frameStats = FrameStats.ENABLED
+			? new long[FrameStats.METRICS] : null;
 
 	/**
 	 * This constructor initializes a new level object, so that the GameEngine
@@ -41,14 +93,162 @@ public class Level {
 	 * loaded) or a reference to the custom level file that should be loaded.
 	 */
 	public Level(Random rng, String levelFilename) { 
+		this(rng, levelFilename, false);
+	}
+
+	/**
+	 * This constructor initializes a new level object that can optionally
+	 * run without the GameEngine window. A headless level never creates any
+	 * Graphic objects and never draws, so that it can be simulated as fast
+	 * as possible on machines without a display.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param levelFilename is either null (when a random level should be 
+	 * loaded) or a reference to the custom level file that should be loaded.
+	 * @param isHeadless is true when this level runs without the GameEngine
+	 * window, and false when it is played in the GameEngine window
+	 */
+	public Level(Random rng, String levelFilename, boolean isHeadless) { 
+		this(rng, levelFilename, RANDOM_OBJECT_COUNT, isHeadless);
+	}
+
+	/**
+	 * This constructor initializes a new random level with the specified
+	 * number of each type of object, which can optionally run without the
+	 * GameEngine window. Planets are only added while there is room for
+	 * them, so a crowded level may end up with fewer planets than this.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param objectCount is the number of warp stars, gas clouds and planets
+	 * to randomly place in the level
+	 * @param isHeadless is true when this level runs without the GameEngine
+	 * window, and false when it is played in the GameEngine window
+	 */
+	public Level(Random rng, int objectCount, boolean isHeadless) { 
+		this(rng, null, objectCount, isHeadless);
+	}
+
+	/**
+	 * This constructor initializes a new headless level on a screen of the
+	 * specified size, like the one a recorded session was played on.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param levelFilename is either null (when a random level should be 
+	 * loaded) or a reference to the custom level file that should be loaded.
+	 * @param objectCount is the number of each type of object to place in a
+	 * random level
+	 * @param width is the width of the screen this level wraps around
+	 * @param height is the height of the screen this level wraps around
+	 */
+	public Level(Random rng, String levelFilename, int objectCount, int width,
+			int height) { 
+		this(rng, levelFilename, null, objectCount, true, width, height);
+	}
+
+	/**
+	 * This constructor initializes a new headless level in the starting
+	 * state of a template, on a screen of the specified size. The objects
+	 * are copied from the template, so nothing is read or generated.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param template is the starting state of the level, like one from
+	 * LevelTemplateCache.forSeed()
+	 * @param width is the width of the screen this level wraps around
+	 * @param height is the height of the screen this level wraps around
+	 */
+	public Level(Random rng, LevelTemplate template, int width, int height) { 
+		this(rng, null, template, 0, true, width, height);
+	}
+
+	/**
+	 * This constructor opens a level in the GameEngine window, or on a
+	 * headless screen of the GameEngine's usual size.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param levelFilename is either null (when a random level should be 
+	 * loaded) or a reference to the custom level file that should be loaded.
+	 * @param objectCount is the number of each type of object to place in a
+	 * random level
+	 * @param isHeadless is true when this level runs without the GameEngine
+	 * window, and false when it is played in the GameEngine window
+	 */
+	private Level(Random rng, String levelFilename, int objectCount,
+			boolean isHeadless) { 
+		// a headless level uses the same screen size as the GameEngine
+		this(rng, levelFilename, null, objectCount, isHeadless,
+				isHeadless ? HEADLESS_WIDTH : GameEngine.getWidth(),
+				isHeadless ? HEADLESS_HEIGHT : GameEngine.getHeight());
+	}
+
+	/**
+	 * This constructor does the work of the public constructors.
+	 * @param rng is the ONLY Random number generator that should be used by 
+	 * throughout this level and by any of the objects within it.
+	 * @param levelFilename is either null (when a random level should be 
+	 * loaded) or a reference to the custom level file that should be loaded.
+	 * @param template is the starting state to copy instead, or null
+	 * @param objectCount is the number of each type of object to place in a
+	 * random level
+	 * @param isHeadless is true when this level runs without the GameEngine
+	 * window, and false when it is played in the GameEngine window
+	 * @param width is the width of the screen this level wraps around
+	 * @param height is the height of the screen this level wraps around
+	 */
+	private Level(Random rng, String levelFilename, LevelTemplate template,
+			int objectCount, boolean isHeadless, int width, int height) { 
 
 		// takes rng parameter and sets it equal to field variable
 		this.rng = rng;
+		this.isHeadless = isHeadless;
+		this.isRendering = !isHeadless;
+		this.width = width;
+		this.height = height;
+		// a recorded level gets a Random with a known seed, so that it can
+		// be replayed
+		String recordingDirectory = System.getProperty(InputRecorder.PROPERTY);
+		if (!isHeadless && recordingDirectory != null) {
+			long seed = rng.nextLong();
+			this.rng = new Random(seed);
+			recorder = InputRecorder.start(recordingDirectory, seed,
+					levelFilename, objectCount, width, height);
+		}
+		// a level file that was built before is copied from its template
+		String templateKey = null;
+		if (levelFilename != null && !EndlessWorld.NAME.equals(levelFilename)) {
+			templateKey = LevelTemplateCache.fileKey(levelFilename);
+			if (templateKey != null) {
+				template = LevelTemplateCache.get(templateKey);
+			}
+		}
 		// if it doesn't detect a level file, will load a random level instead
-		if (levelFilename != null) {
-			loadCustomLevel(levelFilename);
+		if (template != null) {
+			loadTemplate(template);
+		} else if (EndlessWorld.NAME.equals(levelFilename)) {
+			loadEndlessLevel(objectCount);
+		} else if (levelFilename != null) {
+			// the file may already have been read while the last level was
+			// played
+			boolean isLoaded = !isHeadless
+					&& loadPrefetchedLevel(levelFilename);
+			if (!isLoaded && BinaryLevel.isBinary(levelFilename)) {
+				isLoaded = loadBinaryLevel(levelFilename);
+			} else if (!isLoaded) {
+				isLoaded = loadCustomLevel(levelFilename);
+			}
+			if (isLoaded && templateKey != null) {
+				LevelTemplateCache.put(templateKey, createTemplate());
+			}
 		} else {
-			loadRandomLevel();
+			loadRandomLevel(objectCount);
+		}
+		buildGrids();
+		// the next level file is read while this one is played
+		if (!isHeadless) {
+			LevelPipeline.prefetchAfter(levelFilename);
+		}
+		if (!isHeadless && world == null && levelFilename != null
+				&& Boolean.getBoolean(LevelWatcher.PROPERTY)) {
+			watcher = LevelWatcher.start(levelFilename);
 		}
 
 	}
@@ -67,52 +267,635 @@ public class Level {
 	 * "QUIT" instructs the GameEngine to end the entire game.  In the case of
 	 * either "QUIT" or "ADVANCE" being returned, the GameEngine presents a
 	 * short pause and transition message to help the player notice the change.
+	 * <br/><br/>
+	 * The game itself always advances in ticks of TICK_TIME milliseconds, so
+	 * it plays the same no matter how often this method is called. Time that
+	 * doesn't add up to a whole tick is saved for the next call, and the
+	 * taxi is drawn part of the way between its last two ticks. In fast
+	 * forward mode every call runs the same number of ticks instead.
+	 * <br/><br/>
+	 * While FrameStats are on, each frame's phases are timed and recorded.
+	 * While the level file is watched, its edits are applied before the
+	 * frame's ticks, and a level whose remaining planets were all deleted
+	 * is finished.
 	 */
 	public String update(int time) {
-		taxi.update(time);	// calls taxi update method
+		long frameStart = FrameStats.now();
+		long allocatedBefore = FrameStats.allocatedBytes();
+		String result = "CONTINUE";
+		if (watcher != null) {
+			for (LevelDiff diff = watcher.poll(); diff != null;
+					diff = watcher.poll()) {
+				if (applyDiff(diff)) {
+					result = "ADVANCE";
+				}
+			}
+		}
+		latchInput(time);
+		int ticks;
+		if (fastForwardTicks > 0) {
+			ticks = fastForwardTicks;
+			unsimulatedTime = 0;
+		} else {
+			unsimulatedTime += time;
+			ticks = Math.min(unsimulatedTime / TICK_TIME, MAX_TICKS_PER_UPDATE);
+			// time beyond the most ticks we catch up on is dropped
+			unsimulatedTime = Math.min(unsimulatedTime - ticks * TICK_TIME,
+					TICK_TIME - 1);
+		}
+		int i;
+		for (i = 0; i < ticks && result.equals("CONTINUE"); i++) {
+			result = tick();
+		}
+		if (isRendering) {
+			render((float) unsimulatedTime / TICK_TIME);
+		}
+		if (FrameStats.ENABLED) {
+			recordFrame(frameStart, allocatedBefore, i);
+		}
+		if (recorder != null && !result.equals("CONTINUE")) {
+			recorder.close();
+			recorder = null;
+		}
+		if (watcher != null && !result.equals("CONTINUE")) {
+			watcher.close();
+			watcher = null;
+		}
+		return result;
+	}
+
+	/**
+	 * This method hands the metrics of the frame that just ended to
+	 * FrameStats. The HUD of the frame before is part of this frame, since
+	 * the GameEngine asks for it between calls to update().
+	 * @param frameStart is when the frame started, from FrameStats.now()
+	 * @param allocatedBefore is the number of bytes this thread had
+	 * allocated when the frame started
+	 * @param ticks is the number of ticks the frame ran
+	 */
+	private void recordFrame(long frameStart, long allocatedBefore, int ticks) {
+		frameStats[FrameStats.FRAME] = FrameStats.now() - frameStart;
+		frameStats[FrameStats.ALLOCATED] = FrameStats.allocatedBytes()
+				- allocatedBefore;
+		frameStats[FrameStats.TICKS] = ticks;
+		frameStats[FrameStats.GAS_CLOUD_COUNT] = gasClouds.size();
+		frameStats[FrameStats.WARP_STAR_COUNT] = warpStars.size();
+		frameStats[FrameStats.PLANET_COUNT] = planets.size();
+		FrameStats.record(frameStats);
+	}
+
+	/**
+	 * This method adds the time since a phase started to that phase's
+	 * metric for the current frame, while FrameStats are on.
+	 * @param phase is the metric of the phase, like FrameStats.TAXI
+	 * @param start is when the phase started, from FrameStats.now()
+	 * @return when the phase ended, which is when the next one starts
+	 */
+	private long lap(int phase, long start) {
+		if (!FrameStats.ENABLED) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		frameStats[phase] += now - start;
+		return now;
+	}
+
+	/**
+	 * This method advances all of the objects in this level by exactly one
+	 * tick of TICK_TIME milliseconds and enforces the game's rules, without
+	 * drawing anything. Any space bar press or mouse click since the last
+	 * tick is handled by this tick. When this level has a Pilot, it chooses
+	 * the controls for the tick instead.
+	 * @return "CONTINUE", "ADVANCE", or "QUIT", as described for update()
+	 */
+	public String tick() {
+		InputSnapshot input = pilot != null ? pilot.steer(this) : pendingInput;
+		pendingInput = pendingInput.withoutPresses();
+		return simulate(TICK_TIME, input);
+	}
+
+	/**
+	 * This method turns fast forward mode on or off. While it is on, every
+	 * call to update() runs the same number of ticks, no matter how much time
+	 * has passed, so that the game can be advanced much faster than real time.
+	 * @param ticksPerUpdate is the number of ticks to run for each call to
+	 * update(), or 0 to go back to real time
+	 */
+	public void setFastForward(int ticksPerUpdate) {
+		this.fastForwardTicks = Math.max(0, ticksPerUpdate);
+	}
+
+	/**
+	 * This method lets a Pilot steer the taxi instead of the player. While a
+	 * level has a Pilot, the GameEngine's keyboard and mouse are ignored.
+	 * @param pilot chooses the controls before every tick, or null to give
+	 * the controls back to the player
+	 */
+	public void setPilot(Pilot pilot) {
+		this.pilot = pilot;
+	}
+
+	/**
+	 * This method gives this level the player's keyboard and mouse. The keys
+	 * held stay held until the next input is given, and presses are kept
+	 * until a tick handles them, since a frame may not run any ticks.
+	 * update() does this itself with the GameEngine's input, unless this
+	 * level is headless or has a Pilot.
+	 * @param input is the keyboard and mouse at this moment
+	 */
+	public void setInput(InputSnapshot input) {
+		pendingInput = pendingInput.merge(input);
+	}
+
+	/**
+	 * This method captures the player's keyboard and mouse from the
+	 * GameEngine, once for each frame, and records them when this level's
+	 * session is being recorded.
+	 * @param time is the time in milliseconds passed to update()
+	 */
+	private void latchInput(int time) {
+		if (isHeadless || pilot != null) {
+			return;
+		}
+		InputSnapshot input = InputSnapshot.capture();
+		if (recorder != null) {
+			recorder.record(time, input);
+		}
+		setInput(input);
+	}
+
+	/**
+	 * This method advances all of the objects in this level and enforces the
+	 * game's rules, without drawing anything.
+	 * @param time is the time in milliseconds to advance the level by
+	 * @param input is the keyboard and mouse to use
+	 * @return "CONTINUE", "ADVANCE", or "QUIT", as described for update()
+	 */
+	private String simulate(int time, InputSnapshot input) {
+		long start = FrameStats.now();
 		// returns "QUIT" if user pressed SPACEBAR after lost.
-		if (taxi.update(time)) {
+		boolean isQuitting = taxi.update(time, width, height, input);
+		// a taxi that ran through a planet is stopped where it hit it, so
+		// that long ticks don't skip over planets
+		int stopPlanet = Planet.stopAtFirstContact(planets, planetGrid, taxi,
+				destinationPlanetIndex, width, height, nearbyObjects);
+		// in an endless level, a taxi that wrapped around has flown into the
+		// next chunk. The sweep only knew the chunk it left, so a planet it
+		// was stopped at is forgotten.
+		if (world != null && (taxi.getWrapX() != 0 || taxi.getWrapY() != 0)) {
+			world.move(taxi.getWrapX(), taxi.getWrapY());
+			loadChunk();
+			stopPlanet = -1;
+		}
+		start = lap(FrameStats.TAXI, start);
+		if (isQuitting) {
 			return "QUIT";
 		}
-		// loops through to create Gas clouds, calling update and handleFueling
-		for (int i=0; i <gasClouds.size(); i++) {
-			gasClouds.get(i).update(time);
-			gasClouds.get(i).handleFueling(taxi);
-			// removes a Gas cloud when Taxi comes into contact with 
-			// a Gas cloud
-			if(gasClouds.get(i).shouldRemove()) {
-				gasClouds.remove(i);
-				i--;	// used to double check the removal of Gas clouds
+		// rotates all of the Gas clouds
+		GasCloud.update(gasClouds, time);
+		// only the Gas clouds near the taxi's path can be collected this
+		// frame. They are visited from the last slot to the first, so that
+		// removing one never moves a cloud that is still waiting to be
+		// visited.
+		nearbyObjects.clear();
+		taxi.queryPath(gasCloudGrid, EntityStore.GAS_SIZE, nearbyObjects);
+		for (int j=nearbyObjects.size()-1; j >= 0; j--) {
+			int i = nearbyObjects.get(j);
+			if (GasCloud.handleFueling(gasClouds, i, taxi, width, height)) {
+				removeGasCloud(i);
 			}
 		}
-		// loops through to create Warp stars, calling update and
-		// handleNavigation
-		for (int i=0; i <warpStars.size(); i++) {
-			warpStars.get(i).update();
-			warpStars.get(i).handleNavigation(taxi);
+		start = lap(FrameStats.GAS_CLOUDS, start);
+		// Warp stars are only looked at when the mouse is clicked, and then
+		// only the one on top under the mouse is used
+		if (input.isPressed(InputSnapshot.Key.MOUSE)) {
+			int star = WarpStar.pick(warpStars, warpStarGrid, input.getMouseX(),
+					input.getMouseY(), nearbyObjects);
+			if (star >= 0) {
+				WarpStar.handleNavigation(warpStars, star, taxi);
+			}
 		}
+		start = lap(FrameStats.WARP_STARS, start);
 
-		// loops through to create Planets, calling update and
-		// handleLanding
-		for (int i=0; i <planets.size(); i++) {
-			planets.get(i).update(time);
-			if (planets.get(i).handleLanding(taxi)) {
+		// only the Planets near the taxi can be landed on or crashed into,
+		// and they are checked in the same order as the planets store. The
+		// planet the taxi was stopped at is touching it, even when rounding
+		// leaves them a hair apart.
+		nearbyObjects.clear();
+		taxi.queryPath(planetGrid, PLANET_SIZE, nearbyObjects);
+		for (int j=0; j <nearbyObjects.size(); j++) {
+			int i = nearbyObjects.get(j);
+			boolean isLanding = i == stopPlanet
+					? Planet.handleContact(taxi,
+							planets.hasFlag(i, EntityStore.DESTINATION))
+					: Planet.handleLanding(planets, i, taxi);
+			if (isLanding) {
 				// once taxi lands on destination, set destination to next
-				// in the array and change appearance to normal
-				planets.get(destinationPlanetIndex).setDestination(false);
+				// in the store and change appearance to normal
+				Planet.setDestination(planets, destinationPlanetIndex, false);
 				destinationPlanetIndex++;
+				// an endless level only counts the fare, and any other level
 				// returns "ADVANCE" when level completed, goes to next level
-				if (destinationPlanetIndex == planets.size()) {
+				if (world != null) {
+					world.completeFare();
+				} else if (destinationPlanetIndex == planets.size()) {
+					lap(FrameStats.PLANETS, start);
 					return "ADVANCE";
 				}
 			}
 		}
 		// sets the appearance to destination depending on the PlanetIndex
-		planets.get(destinationPlanetIndex).setDestination(true);
+		if (destinationPlanetIndex < planets.size()) {
+			Planet.setDestination(planets, destinationPlanetIndex, true);
+		}
+		lap(FrameStats.PLANETS, start);
 
 		return "CONTINUE";
 	}	
 
+	/**
+	 * This method saves the state of this level into a new snapshot, which
+	 * restore() can later put this level (or a copy of it built the same
+	 * way) back into. See snapshot(ByteBuffer) for what is saved.
+	 * @return the snapshot
+	 */
+	public byte[] snapshot() {
+		byte[] snapshot = new byte[getSnapshotSize()];
+		snapshot(ByteBuffer.wrap(snapshot));
+		return snapshot;
+	}
+
+	/**
+	 * This method saves everything about this level that changes while it
+	 * is played: the taxi, the gas clouds that are left, the destination,
+	 * the time and input that no tick has handled yet, and an endless
+	 * level's world. The planets and warp stars never change, so only their
+	 * numbers are saved, to check that a snapshot is restored into the same
+	 * level. Nothing is allocated, so a search can save a snapshot at every
+	 * step into a buffer it reuses.
+	 * <br/><br/>
+	 * The level's Random isn't saved, since nothing draws from it after the
+	 * level is built.
+	 * @param buffer is where the getSnapshotSize() bytes of the snapshot
+	 * are written
+	 */
+	public void snapshot(ByteBuffer buffer) {
+		buffer.putInt(SNAPSHOT_VERSION);
+		buffer.putInt(width);
+		buffer.putInt(height);
+		buffer.put((byte) (world != null ? 1 : 0));
+		buffer.putInt(world != null ? 0 : planets.size());
+		buffer.putInt(world != null ? 0 : warpStars.size());
+		buffer.putInt(destinationPlanetIndex);
+		buffer.putInt(unsimulatedTime);
+		buffer.put((byte) pendingInput.getHeld());
+		buffer.put((byte) pendingInput.getPressed());
+		buffer.putFloat(pendingInput.getMouseX());
+		buffer.putFloat(pendingInput.getMouseY());
+		taxi.writeState(buffer);
+		if (world != null) {
+			world.writeState(buffer);
+		}
+		gasClouds.writeState(buffer);
+	}
+
+	/**
+	 * This method puts this level back into the state saved in a snapshot.
+	 * A level that is being recorded stops recording, since its recording
+	 * could no longer be replayed.
+	 * @param snapshot is a snapshot made by snapshot() of this level, or of
+	 * a level built the same way
+	 * @throws IllegalArgumentException when the snapshot is of a different
+	 * version or of a different level
+	 */
+	public void restore(byte[] snapshot) {
+		restore(ByteBuffer.wrap(snapshot));
+	}
+
+	/**
+	 * This method puts this level back into the state saved by
+	 * snapshot(ByteBuffer), like the method above.
+	 * @param buffer is where the snapshot is read from
+	 * @throws IllegalArgumentException when the snapshot is of a different
+	 * version or of a different level
+	 */
+	public void restore(ByteBuffer buffer) {
+		int version = buffer.getInt();
+		if (version != SNAPSHOT_VERSION) {
+			throw new IllegalArgumentException("unsupported snapshot version "
+					+ version);
+		}
+		int snapshotWidth = buffer.getInt();
+		int snapshotHeight = buffer.getInt();
+		boolean isEndless = buffer.get() != 0;
+		int planetCount = buffer.getInt();
+		int warpStarCount = buffer.getInt();
+		if (snapshotWidth != width || snapshotHeight != height
+				|| isEndless != (world != null)
+				|| planetCount != (isEndless ? 0 : planets.size())
+				|| warpStarCount != (isEndless ? 0 : warpStars.size())) {
+			throw new IllegalArgumentException("snapshot of another level");
+		}
+		if (recorder != null) {
+			recorder.close();
+			recorder = null;
+		}
+		int destination = buffer.getInt();
+		unsimulatedTime = buffer.getInt();
+		int held = buffer.get() & 0xFF;
+		int pressed = buffer.get() & 0xFF;
+		pendingInput = new InputSnapshot(held, pressed, buffer.getFloat(),
+				buffer.getFloat());
+		taxi.readState(buffer);
+		if (world != null) {
+			world.readState(buffer);
+			loadChunk();
+		}
+		gasClouds.readState(buffer);
+		if (destinationPlanetIndex < planets.size()) {
+			Planet.setDestination(planets, destinationPlanetIndex, false);
+		}
+		destinationPlanetIndex = destination;
+		if (destinationPlanetIndex < planets.size()) {
+			Planet.setDestination(planets, destinationPlanetIndex, true);
+		}
+		gasCloudGrid.clear();
+		fillGrid(gasCloudGrid, gasClouds);
+	}
+
+	/**
+	 * This accessor retrieves how many bytes a snapshot of this level takes
+	 * right now, which changes as gas clouds are collected.
+	 * @return the size of a snapshot in bytes
+	 */
+	public int getSnapshotSize() {
+		return 4 * 3 + 1 + 4 * 4 + 2 + 4 * 2 + Taxi.STATE_SIZE
+				+ gasClouds.getStateSize()
+				+ (world != null ? world.getStateSize() : 0);
+	}
+
+	/**
+	 * This method indexes every object in this level by its position, so
+	 * that collisions only need to be checked against nearby objects.
+	 * Planets and warp stars never move, so they are indexed just once.
+	 */
+	private void buildGrids() {
+		gasCloudGrid = buildGrid(gasClouds);
+		warpStarGrid = buildGrid(warpStars);
+		planetGrid = buildGrid(planets);
+	}
+
+	/**
+	 * This method indexes every object in a store by its position.
+	 * @param store is the store of objects to index
+	 * @return a grid holding the slot of every object in the store
+	 */
+	SpatialGrid buildGrid(EntityStore store) {
+		SpatialGrid grid = new SpatialGrid(width, height, GRID_CELL_SIZE);
+		fillGrid(grid, store);
+		return grid;
+	}
+
+	/**
+	 * This method adds every object in a store to a grid.
+	 * @param grid is the grid, which should be empty
+	 * @param store is the store of objects to index
+	 */
+	private static void fillGrid(SpatialGrid grid, EntityStore store) {
+		for (int i=0; i <store.size(); i++) {
+			grid.add(i, store.x[i], store.y[i]);
+		}
+	}
+
+	/**
+	 * This method removes a collected Gas cloud from this level. The last
+	 * Gas cloud in the store takes its slot, so the grid is told about that.
+	 * @param slot is the slot of the Gas cloud being removed
+	 */
+	private void removeGasCloud(int slot) {
+		if (world != null) {
+			world.collectGasCloud(gasClouds.x[slot], gasClouds.y[slot]);
+		}
+		gasCloudGrid.remove(slot, gasClouds.x[slot], gasClouds.y[slot]);
+		int moved = gasClouds.swapRemove(slot);
+		if (moved >= 0) {
+			gasCloudGrid.move(moved, slot, gasClouds.x[slot], gasClouds.y[slot]);
+		}
+	}
+
+	/**
+	 * This method applies the edits made to the level file while it was
+	 * played. The taxi and the fares already completed are kept: gas clouds
+	 * are found by where they were, so one that was already collected stays
+	 * collected, and planets and warp stars are never removed during play,
+	 * so their slots are still their order in the file.
+	 * @param diff is the changes between two versions of the level file
+	 * @return true when no planet is left to fly to, because the planets
+	 * still to be visited were deleted, which finishes the level
+	 */
+	private boolean applyDiff(LevelDiff diff) {
+		for (int i = 0; i < diff.size(); i++) {
+			switch (diff.getType(i)) {
+			case EntityStore.GAS:
+				applyGasCloudChange(diff, i);
+				break;
+			case EntityStore.PLANET:
+				applyChange(diff, i, planets, planetGrid);
+				// a new planet can be the next fare once the others are done
+				if (diff.getChange(i) == LevelDiff.ADDED
+						&& diff.getIndex(i) == destinationPlanetIndex) {
+					Planet.setDestination(planets, destinationPlanetIndex, true);
+				}
+				break;
+			case EntityStore.WARP_STAR:
+				applyChange(diff, i, warpStars, warpStarGrid);
+				break;
+			}
+		}
+		return destinationPlanetIndex >= planets.size();
+	}
+
+	/**
+	 * This method applies one change to a planet or warp star, whose slot in
+	 * its store is its index in the level file.
+	 * @param diff is the changes between two versions of the level file
+	 * @param i is the index of the change in the diff
+	 * @param store is the store of the changed object's type
+	 * @param grid is the grid that indexes the store
+	 */
+	private void applyChange(LevelDiff diff, int i, EntityStore store,
+			SpatialGrid grid) {
+		int slot = diff.getIndex(i);
+		switch (diff.getChange(i)) {
+		case LevelDiff.ADDED:
+			slot = store.add(diff.getType(i), diff.getNewX(i), diff.getNewY(i),
+					0);
+			grid.add(slot, diff.getNewX(i), diff.getNewY(i));
+			break;
+		case LevelDiff.REMOVED:
+			// removals come from the end, so this is the last slot
+			grid.remove(slot, store.x[slot], store.y[slot]);
+			store.swapRemove(slot);
+			break;
+		case LevelDiff.MOVED:
+			grid.remove(slot, store.x[slot], store.y[slot]);
+			store.x[slot] = diff.getNewX(i);
+			store.y[slot] = diff.getNewY(i);
+			grid.add(slot, store.x[slot], store.y[slot]);
+			break;
+		}
+	}
+
+	/**
+	 * This method applies one change to a gas cloud. Gas clouds swap slots
+	 * as they are collected, so the cloud that changed is found by where it
+	 * was, and nothing happens to one that was already collected.
+	 * @param diff is the changes between two versions of the level file
+	 * @param i is the index of the change in the diff
+	 */
+	private void applyGasCloudChange(LevelDiff diff, int i) {
+		if (diff.getChange(i) == LevelDiff.ADDED) {
+			int slot = GasCloud.add(gasClouds, diff.getNewX(i), diff.getNewY(i),
+					0);
+			gasCloudGrid.add(slot, diff.getNewX(i), diff.getNewY(i));
+			return;
+		}
+		int slot = findGasCloud(diff.getOldX(i), diff.getOldY(i));
+		if (slot < 0) {
+			return;
+		}
+		if (diff.getChange(i) == LevelDiff.REMOVED) {
+			removeGasCloud(slot);
+		} else {
+			gasCloudGrid.remove(slot, gasClouds.x[slot], gasClouds.y[slot]);
+			gasClouds.x[slot] = diff.getNewX(i);
+			gasClouds.y[slot] = diff.getNewY(i);
+			gasCloudGrid.add(slot, gasClouds.x[slot], gasClouds.y[slot]);
+		}
+	}
+
+	/**
+	 * This method finds the gas cloud at a position.
+	 * @param x is the horizontal position of the gas cloud
+	 * @param y is the vertical position of the gas cloud
+	 * @return the slot of the gas cloud, or -1 when none is there
+	 */
+	private int findGasCloud(float x, float y) {
+		nearbyObjects.clear();
+		gasCloudGrid.query(x, y, 0, nearbyObjects);
+		for (int j = 0; j < nearbyObjects.size(); j++) {
+			int slot = nearbyObjects.get(j);
+			if (gasClouds.x[slot] == x && gasClouds.y[slot] == y) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * This method draws all of the objects in this level at their current
+	 * positions. It must only be called while the GameEngine is running.
+	 */
+	public void render() {
+		render(1);
+	}
+
+	/**
+	 * This method draws all of the objects in this level, with the taxi part
+	 * of the way between its last two ticks. It must only be called while the
+	 * GameEngine is running. Objects outside the window are skipped, and the
+	 * rest are drawn one appearance at a time by a RenderQueue.
+	 * @param alpha is how far the taxi is drawn from its position before the
+	 * last tick (0) to its current position (1)
+	 */
+	public void render(float alpha) {
+		long start = FrameStats.now();
+		if (renderQueue == null) {
+			renderQueue = new RenderQueue();
+		}
+		renderQueue.begin(GameEngine.getWidth(), GameEngine.getHeight());
+		taxi.draw(renderQueue, alpha, width, height);
+		gasClouds.draw(renderQueue);
+		warpStars.draw(renderQueue);
+		planets.draw(renderQueue);
+		renderQueue.flush();
+		lap(FrameStats.RENDER, start);
+		if (FrameStats.ENABLED) {
+			frameStats[FrameStats.DRAWN] = renderQueue.getDrawn();
+			frameStats[FrameStats.CULLED] = renderQueue.getSkipped();
+			frameStats[FrameStats.BATCHES] = renderQueue.getBatches();
+		}
+	}
+
+	/**
+	 * This accessor retrieves the queue that the last frame was drawn with,
+	 * which knows how many objects were drawn and skipped.
+	 * @return the render queue, or null before this level is first drawn
+	 */
+	public RenderQueue getRenderQueue() {
+		return renderQueue;
+	}
+
+	/**
+	 * This method turns the render pass of update() on or off. Headless
+	 * levels can never be rendered, since there is no window to draw in.
+	 * @param isRendering is true when update() should also draw the level
+	 */
+	public void setRendering(boolean isRendering) {
+		this.isRendering = isRendering && !isHeadless;
+	}
+
+	/**
+	 * This accessor retrieves whether update() draws this level.
+	 * @return true when update() draws this level, otherwise false
+	 */
+	public boolean isRendering() {
+		return isRendering;
+	}
+
+	/**
+	 * This accessor retrieves the taxi of this level.
+	 * @return the taxi
+	 */
+	public Taxi getTaxi() {
+		return taxi;
+	}
+
+	/**
+	 * This accessor retrieves the slot of the current destination planet,
+	 * which is also the number of fares completed so far. In an endless
+	 * level, these are only the fares of the taxi's chunk, and the slot is
+	 * past the last planet once they have all been completed.
+	 * @return the slot of the destination in the planets store
+	 */
+	public int getDestinationPlanetIndex() {
+		return destinationPlanetIndex;
+	}
+
+	/**
+	 * This accessor retrieves the world of an endless level.
+	 * @return the world, or null when this level isn't endless
+	 */
+	public EndlessWorld getWorld() {
+		return world;
+	}
+
+	/**
+	 * This accessor retrieves the width of the screen this level wraps around.
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * This accessor retrieves the height of the screen this level wraps around.
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
 	/**
 	 * This method returns a string of text that will be displayed in the upper
 	 * left hand corner of the game window.  Ultimately this text should convey
@@ -123,35 +906,75 @@ public class Level {
 	 * of the screen by the GameEngine.
 	 */
 	public String getHUDMessage() {
-		if (taxi.getFuel() <= 0 && !taxi.hasCrashed()) {
-			return "You've run out of fuel!" + "\n" 
-					+ "Press the SPACEBAR to end this game.";
-		} else if (taxi.hasCrashed()){
-			return "You've crashed into a planet!" + "\n" 
-					+ "Press the SPACEBAR to end this game.";
+		long start = FrameStats.now();
+		// only formats the text again when something on it has changed
+		if (world != null) {
+			hud.update(taxi, world.getFares(), -1);
 		} else {
-			return "Fuel: " +  Float.toString(taxi.getFuel()) + "\n" 
-					+ "Fares: " + destinationPlanetIndex + "/" + planets.size();
+			hud.update(taxi, destinationPlanetIndex, planets.size());
 		}
+		String text = hud.getText();
+		lap(FrameStats.HUD, start);
+		return text;
 	}
 
 	/**
 	 * This method initializes the current level to contain a single taxi in 
-	 * the center of the screen, along with 6 randomly positioned objects of 
-	 * each of the following types: warp stars, gasClouds, and planets.
+	 * the center of the screen, along with the specified number of randomly
+	 * positioned objects of each of the following types: warp stars,
+	 * gasClouds, and planets. Once the screen is too full for another planet
+	 * no more planets are added.
+	 * @param objectCount is the number of each type of object to place
 	 */
-	private void loadRandomLevel() {
+	private void loadRandomLevel(int objectCount) {
 		// sets taxi position to the middle of the screen
-		taxi = new Taxi(GameEngine.getWidth()/2,GameEngine.getHeight()/2);
+		taxi = new Taxi(width/2,height/2);
+		PlanetPlacer placer = new PlanetPlacer(rng, planets, width, height,
+				PlanetPlacer.DEFAULT_ATTEMPTS);
 		// randomizes position of Warp stars, Gas clouds, and planets
-		for (int i= 0; i<6; i++) {
-			warpStars.add(new WarpStar((rng.nextFloat()*GameEngine.getWidth())
-					,(rng.nextFloat()*GameEngine.getHeight())));
-			gasClouds.add(new GasCloud((rng.nextFloat()*GameEngine.getWidth())
-					,(rng.nextFloat()*GameEngine.getHeight()), 0));
-			planets.add(new Planet(rng, this.planets));
+		for (int i= 0; i<objectCount; i++) {
+			WarpStar.add(warpStars, (rng.nextFloat()*width)
+					,(rng.nextFloat()*height));
+			GasCloud.add(gasClouds, (rng.nextFloat()*width)
+					,(rng.nextFloat()*height), 0);
+			if (!placer.isFull()) {
+				placer.place();
+			}
+		}
+		Planet.setDestination(planets, destinationPlanetIndex, true);
+	}
+
+	/**
+	 * This method initializes the current level to be endless, with the taxi
+	 * in the center of the screen and of the first chunk of a new
+	 * EndlessWorld.
+	 * @param objectCount is the number of each type of object in each chunk
+	 */
+	private void loadEndlessLevel(int objectCount) {
+		taxi = new Taxi(width/2,height/2);
+		world = new EndlessWorld(rng.nextLong(), objectCount, width, height);
+		loadChunk();
+	}
+
+	/**
+	 * This method replaces the objects of this level with those of the
+	 * chunk the taxi is in, and marks the chunk's next destination.
+	 */
+	private void loadChunk() {
+		world.copyChunk(gasClouds, planets, warpStars);
+		destinationPlanetIndex = world.getChunkFares();
+		if (destinationPlanetIndex < planets.size()) {
+			Planet.setDestination(planets, destinationPlanetIndex, true);
+		}
+		// the grids are only refilled once they have been built
+		if (planetGrid != null) {
+			gasCloudGrid.clear();
+			warpStarGrid.clear();
+			planetGrid.clear();
+			fillGrid(gasCloudGrid, gasClouds);
+			fillGrid(warpStarGrid, warpStars);
+			fillGrid(planetGrid, planets);
 		}
-		planets.get(destinationPlanetIndex).setDestination(true);
 	}
 
 	/**
@@ -166,58 +989,118 @@ public class Level {
 	 */
 	private boolean loadCustomLevel(String levelFilename) { 
 		// File Format: ObjectType @ 12.3, 45.6
-		File levelFile = new File(levelFilename);
-		Scanner input = null;
 		try {
-			// takes in file input
-			input = new Scanner(levelFile);
-			// while there are lines to read, keep looping
-			while(input.hasNext()) {
-				String objectType = input.next();
-				if (input.hasNext("@")) {
-					input.next();
-					// takes in the firstFloat and the comma
-					String firstFloatRaw = input.next();
-					// uses substring to isolate firstFloat from comma
-					firstFloatRaw = firstFloatRaw.substring
-							(0, firstFloatRaw.length()-1);
-					// converts string to float
-					Float firstFloat = Float.parseFloat(firstFloatRaw);
-					Float secondFloat = input.nextFloat();
-					// creates specific object depending on type specified
-					if(objectType.equals("TAXI")) {
-						this.taxi = new Taxi(firstFloat, secondFloat);
-					}
-					if(objectType.equals("GAS")) {
-						GasCloud customCloud = new GasCloud
-								(firstFloat, secondFloat, 0);
-						this.gasClouds.add(customCloud);
-					}
-					if(objectType.equals("PLANET")) {
-						Planet customPlanet = new Planet
-								(firstFloat, secondFloat);
-						this.planets.add(customPlanet);
-					}
-					if(objectType.equals("WARP_STAR")) {
-						WarpStar customStar = new WarpStar
-								(firstFloat, secondFloat);
-						this.warpStars.add(customStar);
-					}
+			new LevelParser().parse(levelFilename, new LevelParser.Handler() {
+				public void handleObject(byte type, float x, float y) {
+					addObject(type, x, y);
 				}
-			}
+			});
 			return true;
-		} catch (NullPointerException a) {
-			return false;	// if object type is not detected, load random
-		} catch (FileNotFoundException b) {
-			b.printStackTrace();
+		} catch (LevelFormatException a) {
+			// keeps the objects that were read before the problem
+			System.err.println(levelFilename + ": " + a.getMessage());
+			return false;
+		} catch (IOException b) {
+			System.err.println(levelFilename + ": " + b.getMessage());
 			return false;	// if no file is detected, load random level
+		}
+	}
+
+	/**
+	 * This method initializes the current level to contain each of the objects
+	 * in the specified compiled level file (see BinaryLevel), which are
+	 * copied straight into this level's stores.
+	 * @param levelFilename is the name of the .wstb file that the objects are
+	 * loaded from
+	 * @return true after the specified file's contents are successfully loaded
+	 * and false whenever any problems are encountered related to this loading
+	 */
+	private boolean loadBinaryLevel(String levelFilename) {
+		BinaryLevel level = new BinaryLevel(gasClouds, planets, warpStars);
+		try {
+			level.read(levelFilename);
+			return true;
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return false;
 		} finally {
-			if (input != null) {	
-				input.close();	// closes scanner
+			if (level.hasTaxi()) {
+				this.taxi = new Taxi(level.getTaxiX(), level.getTaxiY());
 			}
 		}
 	}
 
+	/**
+	 * This method initializes the current level to contain the objects of
+	 * a level file that the LevelPipeline loaded in the background, whose
+	 * stores become this level's stores.
+	 * @param levelFilename is the name of the level file
+	 * @return true when the file had been loaded, and false when it should
+	 * be loaded the usual way
+	 */
+	private boolean loadPrefetchedLevel(String levelFilename) {
+		BinaryLevel level = LevelPipeline.take(levelFilename);
+		if (level == null) {
+			return false;
+		}
+		gasClouds = level.getGasClouds();
+		planets = level.getPlanets();
+		warpStars = level.getWarpStars();
+		if (level.hasTaxi()) {
+			this.taxi = new Taxi(level.getTaxiX(), level.getTaxiY());
+		}
+		return true;
+	}
+
+	/**
+	 * This method initializes the current level to the starting state of a
+	 * template, copying its stores in bulk.
+	 * @param template is the starting state of the level
+	 */
+	private void loadTemplate(LevelTemplate template) {
+		template.copyInto(gasClouds, planets, warpStars);
+		if (template.hasTaxi()) {
+			this.taxi = new Taxi(template.getTaxiX(), template.getTaxiY());
+		}
+	}
+
+	/**
+	 * This method captures the current state of this level's objects as a
+	 * template, which is only the starting state when this level has just
+	 * been built.
+	 * @return a template of this level
+	 */
+	LevelTemplate createTemplate() {
+		return new LevelTemplate(taxi != null,
+				taxi != null ? taxi.body.getX() : 0,
+				taxi != null ? taxi.body.getY() : 0,
+				gasClouds, planets, warpStars);
+	}
+
+	/**
+	 * This method adds one object that was read from a level file.
+	 * @param type is the type of the object, like EntityStore.GAS
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 */
+	private void addObject(byte type, float x, float y) {
+		// creates specific object depending on type specified
+		switch (type) {
+		case EntityStore.TAXI:
+			this.taxi = new Taxi(x, y);
+			break;
+		case EntityStore.GAS:
+			GasCloud.add(this.gasClouds, x, y, 0);
+			break;
+		case EntityStore.PLANET:
+			Planet.add(this.planets, x, y);
+			break;
+		case EntityStore.WARP_STAR:
+			WarpStar.add(this.warpStars, x, y);
+			break;
+		}
+	}
+
 	/**
 	 * This method creates and runs a new GameEngine with its first Level. Any
 	 * command line arguments passed into this program are treated as a list of
@@ -225,6 +1108,7 @@ public class Level {
 	 * @param args is the sequence of custom level filenames to play through
 	 */
 	public static void main(String[] args) {
+		LevelPipeline.setPlaylist(args);
 		GameEngine.start(null,args);
 	} 
 }
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+
+/**
+ * The LevelDiff class lists the differences between two versions of a level
+ * file: the objects that were added, removed or moved. The objects of each
+ * type are matched by their order in the files, which is how a level knows
+ * them too (the first planet in the file is the first fare, and so on), so
+ * editing a line's position shows up as one move, and adding or deleting
+ * lines at the end shows up as additions or removals. The taxi is left out,
+ * since it is where the player is.
+ * <br/><br/>
+ * The changes of each type are listed in order of their index, except that
+ * removals come last, from the highest index to the lowest, so that they
+ * can be applied one at a time by removing the last object of a store.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelDiff {
+
+	// kinds of changes
+	public static final byte ADDED = 0;
+	public static final byte REMOVED = 1;
+	public static final byte MOVED = 2;
+
+	private static final byte[] TYPES = {EntityStore.GAS, EntityStore.PLANET,
+			EntityStore.WARP_STAR};
+
+	// initialized variables, with change i in type[i], change[i], ...
+	private byte[] type = new byte[8];
+	private byte[] change = new byte[8];
+	private int[] index = new int[8];
+	private float[] oldX = new float[8];	// where the object was, unless added
+	private float[] oldY = new float[8];
+	private float[] newX = new float[8];	// where it is now, unless removed
+	private float[] newY = new float[8];
+	private int size;
+
+	/**
+	 * Finds the differences between two versions of a level.
+	 *
+	 * @param before is the level as it was
+	 * @param after is the level as it is now
+	 * @return the changes that turn before into after
+	 */
+	public static LevelDiff compute(BinaryLevel before, BinaryLevel after) {
+		LevelDiff diff = new LevelDiff();
+		for (int t = 0; t < TYPES.length; t++) {
+			EntityStore from = storeOf(before, TYPES[t]);
+			EntityStore to = storeOf(after, TYPES[t]);
+			int common = Math.min(from.size(), to.size());
+			for (int i = 0; i < common; i++) {
+				if (from.x[i] != to.x[i] || from.y[i] != to.y[i]) {
+					diff.add(TYPES[t], MOVED, i, from.x[i], from.y[i], to.x[i],
+							to.y[i]);
+				}
+			}
+			for (int i = common; i < to.size(); i++) {
+				diff.add(TYPES[t], ADDED, i, 0, 0, to.x[i], to.y[i]);
+			}
+			for (int i = from.size() - 1; i >= common; i--) {
+				diff.add(TYPES[t], REMOVED, i, from.x[i], from.y[i], 0, 0);
+			}
+		}
+		return diff;
+	}
+
+	/**
+	 * Finds the store that holds one type of object in a level description.
+	 *
+	 * @param level is the level description
+	 * @param type is the type of object, like EntityStore.GAS
+	 * @return the store of that type
+	 */
+	private static EntityStore storeOf(BinaryLevel level, byte type) {
+		switch (type) {
+		case EntityStore.GAS:
+			return level.getGasClouds();
+		case EntityStore.PLANET:
+			return level.getPlanets();
+		default:
+			return level.getWarpStars();
+		}
+	}
+
+	/**
+	 * Adds one change to the end of this diff.
+	 *
+	 * @param type is the type of the object, like EntityStore.GAS
+	 * @param change is ADDED, REMOVED or MOVED
+	 * @param index is the object's index among the objects of its type
+	 * @param oldX is the horizontal position the object was at
+	 * @param oldY is the vertical position the object was at
+	 * @param newX is the horizontal position the object is at now
+	 * @param newY is the vertical position the object is at now
+	 * @return void
+	 */
+	private void add(byte type, byte change, int index, float oldX,
+			float oldY, float newX, float newY) {
+		if (size == this.type.length) {
+			int capacity = size * 2;
+			this.type = Arrays.copyOf(this.type, capacity);
+			this.change = Arrays.copyOf(this.change, capacity);
+			this.index = Arrays.copyOf(this.index, capacity);
+			this.oldX = Arrays.copyOf(this.oldX, capacity);
+			this.oldY = Arrays.copyOf(this.oldY, capacity);
+			this.newX = Arrays.copyOf(this.newX, capacity);
+			this.newY = Arrays.copyOf(this.newY, capacity);
+		}
+		this.type[size] = type;
+		this.change[size] = change;
+		this.index[size] = index;
+		this.oldX[size] = oldX;
+		this.oldY[size] = oldY;
+		this.newX[size] = newX;
+		this.newY[size] = newY;
+		size++;
+	}
+
+	/**
+	 * This accessor retrieves the number of changes in this diff.
+	 *
+	 * @return the number of changes, which is 0 when the versions are the
+	 * same apart from the taxi
+	 */
+	public int size() {
+		return size;
+	}
+
+	public byte getType(int i) {
+		return type[i];
+	}
+
+	public byte getChange(int i) {
+		return change[i];
+	}
+
+	public int getIndex(int i) {
+		return index[i];
+	}
+
+	public float getOldX(int i) {
+		return oldX[i];
+	}
+
+	public float getOldY(int i) {
+		return oldY[i];
+	}
+
+	public float getNewX(int i) {
+		return newX[i];
+	}
+
+	public float getNewY(int i) {
+		return newY[i];
+	}
+
+	/**
+	 * Counts the changes of one kind.
+	 *
+	 * @param kind is ADDED, REMOVED or MOVED
+	 * @return the number of changes of that kind
+	 */
+	public int count(byte kind) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (change[i] == kind) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Describes this diff in a few words, like "2 added, 0 removed, 1 moved".
+	 *
+	 * @return the description
+	 */
+	public String toString() {
+		return count(ADDED) + " added, " + count(REMOVED) + " removed, "
+				+ count(MOVED) + " moved";
+	}
+}
@@ -0,0 +1,62 @@
+import java.io.IOException;
+
+/**
+ * The LevelFormatException is thrown when a level file does not follow the
+ * level file format. It remembers where in the file the problem was found.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelFormatException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	// initialized variables
+	private int line;
+	private int column;
+	private String reason;
+
+	/**
+	 * Initializes a new exception for a problem at the specified place in a
+	 * level file.
+	 *
+	 * @param message describes what was wrong
+	 * @param line is the line of the file the problem is on, starting at 1
+	 * @param column is the column of the file the problem is at, starting
+	 * at 1
+	 */
+	public LevelFormatException(String message, int line, int column) {
+		super("line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+		this.reason = message;
+	}
+
+	/**
+	 * This accessor retrieves the line that the problem was found on.
+	 *
+	 * @return the line number, starting at 1
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * This accessor retrieves the column that the problem was found at.
+	 *
+	 * @return the column number, starting at 1
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * This accessor retrieves what was wrong, without where it was.
+	 *
+	 * @return the message this exception was created with
+	 */
+	public String getReason() {
+		return reason;
+	}
+}
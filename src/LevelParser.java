@@ -0,0 +1,391 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The LevelParser class reads the objects described in a level file. Each
+ * object in the file is written as its type followed by its position:
+ * <pre>    GAS @ 76.0, 401.0</pre>
+ * The file is read through a reused buffer one byte at a time, and the
+ * types and numbers are matched directly against those bytes, so parsing a
+ * file does not create any objects for its words or numbers. Words that are
+ * not followed by an @ are skipped, and so are objects of unknown types,
+ * just like the original Scanner based loader did.
+ * <br/><br/>
+ * A LevelParser can be reused for many files, but only by one thread at a
+ * time.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelParser {
+
+	/**
+	 * A Handler receives each object that a LevelParser reads.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called once for each object in the level file, in file order.
+		 *
+		 * @param type is the type of the object, like EntityStore.GAS
+		 * @param x is the horizontal position of the object
+		 * @param y is the vertical position of the object
+		 */
+		void handleObject(byte type, float x, float y);
+	}
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_TOKEN_LENGTH = 64;
+
+	// names of each type of object, as bytes
+	private static final byte[] TAXI = bytes("TAXI");
+	private static final byte[] GAS = bytes("GAS");
+	private static final byte[] PLANET = bytes("PLANET");
+	private static final byte[] WARP_STAR = bytes("WARP_STAR");
+
+	// powers of ten that can be represented exactly as floats
+	private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f,
+			1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+	// initialized variables
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private ReadableByteChannel channel;
+	private boolean isEndOfInput;
+	private int line;
+	private int column;
+	private int objectLine;	// the line of the last object handed over
+	private Token current = new Token();
+	private Token lookahead = new Token();
+
+	/**
+	 * Reads every object in a level file.
+	 *
+	 * @param levelFilename is the name of the level file to read
+	 * @param handler receives each object that is read
+	 * @return void
+	 * @throws LevelFormatException when the file does not follow the level
+	 * file format
+	 * @throws IOException when the file can't be read
+	 */
+	public void parse(String levelFilename, Handler handler)
+			throws IOException {
+		FileInputStream input = new FileInputStream(levelFilename);
+		try {
+			parse(input.getChannel(), handler);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads every object from a channel holding the text of a level file.
+	 * The channel is not closed.
+	 *
+	 * @param channel is where the text of the level is read from
+	 * @param handler receives each object that is read
+	 * @return void
+	 * @throws LevelFormatException when the text does not follow the level
+	 * file format
+	 * @throws IOException when the channel can't be read
+	 */
+	public void parse(ReadableByteChannel channel, Handler handler)
+			throws IOException {
+		this.channel = channel;
+		buffer.clear();
+		buffer.flip();	// starts out empty
+		isEndOfInput = false;
+		line = 1;
+		column = 1;
+		try {
+			boolean hasToken = readToken(current);
+			while (hasToken) {
+				if (!readToken(lookahead)) {
+					return;	// a word at the very end of the file
+				}
+				// a word that isn't followed by @ isn't an object type
+				if (!lookahead.is('@')) {
+					Token swap = current;
+					current = lookahead;
+					lookahead = swap;
+					continue;
+				}
+				byte type = typeOf(current);
+				int typeLine = current.line;
+
+				// the horizontal position, usually with its comma attached
+				expectToken(current, "a position after '@'");
+				int length = current.length;
+				boolean hasComma = length > 1
+						&& current.bytes[length - 1] == ',';
+				float x = parseNumber(current, hasComma ? length - 1 : length);
+				if (!hasComma) {
+					expectToken(lookahead, "',' after the horizontal position");
+					if (!lookahead.is(',')) {
+						throw error(lookahead, "expected ',' but found '"
+								+ lookahead + "'");
+					}
+				}
+				// the vertical position
+				expectToken(current, "a vertical position after ','");
+				float y = parseNumber(current, current.length);
+
+				if (type >= 0) {
+					objectLine = typeLine;
+					handler.handleObject(type, x, y);
+				}
+				hasToken = readToken(current);
+			}
+		} finally {
+			this.channel = null;
+		}
+	}
+
+	/**
+	 * This accessor retrieves the line of the file that the object being
+	 * handed to the handler starts on, so that a handler can say where in
+	 * the file an object came from.
+	 *
+	 * @return the line number, starting at 1
+	 */
+	public int getLine() {
+		return objectLine;
+	}
+
+	/**
+	 * Finds which type of object a word names.
+	 *
+	 * @param token is the word
+	 * @return the type of the object, or -1 if the word is not a known type
+	 */
+	private static byte typeOf(Token token) {
+		if (token.is(TAXI)) {
+			return EntityStore.TAXI;
+		} else if (token.is(GAS)) {
+			return EntityStore.GAS;
+		} else if (token.is(PLANET)) {
+			return EntityStore.PLANET;
+		} else if (token.is(WARP_STAR)) {
+			return EntityStore.WARP_STAR;
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the next word, which must be there.
+	 *
+	 * @param token is where the word is stored
+	 * @param expected describes what should come next, for error messages
+	 * @return void
+	 * @throws IOException when the end of the file is reached instead
+	 */
+	private void expectToken(Token token, String expected) throws IOException {
+		if (!readToken(token)) {
+			throw new LevelFormatException("expected " + expected
+					+ " but the file ended", line, column);
+		}
+	}
+
+	/**
+	 * Reads the next word of the file, skipping any white space before it.
+	 *
+	 * @param token is where the word is stored
+	 * @return true when a word was read, and false at the end of the file
+	 * @throws IOException when the channel can't be read
+	 */
+	private boolean readToken(Token token) throws IOException {
+		int next = read();
+		while (next >= 0 && isWhitespace(next)) {
+			next = read();
+		}
+		if (next < 0) {
+			return false;
+		}
+		token.line = line;
+		token.column = column - 1;
+		token.length = 0;
+		while (next >= 0 && !isWhitespace(next)) {
+			if (token.length < MAX_TOKEN_LENGTH) {
+				token.bytes[token.length] = (byte) next;
+			}
+			token.length++;
+			next = read();
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the next byte of the file, and keeps track of the line and
+	 * column that the following byte is on.
+	 *
+	 * @return the next byte, or -1 at the end of the file
+	 * @throws IOException when the channel can't be read
+	 */
+	private int read() throws IOException {
+		while (!buffer.hasRemaining()) {
+			if (isEndOfInput) {
+				return -1;
+			}
+			buffer.clear();
+			if (channel.read(buffer) < 0) {
+				isEndOfInput = true;
+			}
+			buffer.flip();
+		}
+		int next = buffer.get() & 0xFF;
+		if (next == '\n') {
+			line++;
+			column = 1;
+		} else {
+			column++;
+		}
+		return next;
+	}
+
+	/**
+	 * Converts the start of a word to a float. Numbers with up to seven
+	 * digits (which covers screen positions) are converted without creating
+	 * any objects, and give exactly the same float as Float.parseFloat().
+	 *
+	 * @param token is the word holding the number
+	 * @param length is the number of bytes of the word that hold the number
+	 * @return the value of the number
+	 * @throws LevelFormatException when the word is not a number
+	 */
+	private static float parseNumber(Token token, int length)
+			throws LevelFormatException {
+		if (length > MAX_TOKEN_LENGTH) {
+			throw error(token, "expected a number but found '" + token + "'");
+		}
+		byte[] bytes = token.bytes;
+		int i = 0;
+		boolean isNegative = false;
+		if (i < length && (bytes[i] == '-' || bytes[i] == '+')) {
+			isNegative = bytes[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		while (i < length && isDigit(bytes[i])) {
+			mantissa = accumulate(mantissa, bytes[i++]);
+			hasDigits = true;
+		}
+		if (i < length && bytes[i] == '.') {
+			i++;
+			while (i < length && isDigit(bytes[i])) {
+				mantissa = accumulate(mantissa, bytes[i++]);
+				exponent--;
+				hasDigits = true;
+			}
+		}
+		if (hasDigits && i < length && (bytes[i] == 'e' || bytes[i] == 'E')) {
+			i++;
+			boolean isNegativeExponent = false;
+			if (i < length && (bytes[i] == '-' || bytes[i] == '+')) {
+				isNegativeExponent = bytes[i] == '-';
+				i++;
+			}
+			int written = 0;
+			boolean hasExponentDigits = false;
+			while (i < length && isDigit(bytes[i])) {
+				written = Math.min(written * 10 + (bytes[i++] - '0'), 1000);
+				hasExponentDigits = true;
+			}
+			if (!hasExponentDigits) {
+				hasDigits = false;
+			}
+			exponent += isNegativeExponent ? -written : written;
+		}
+		if (!hasDigits || i != length) {
+			throw error(token, "expected a number but found '" + token + "'");
+		}
+
+		// float math is only exact for small mantissas and exponents
+		float value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (mantissa > 0 && mantissa <= (1 << 24) && exponent <= 10
+				&& exponent >= -10) {
+			value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+					: mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			value = Math.abs(Float.parseFloat(new String(bytes, 0, length,
+					StandardCharsets.US_ASCII)));
+		}
+		return isNegative ? -value : value;
+	}
+
+	/**
+	 * Adds one more decimal digit to a mantissa, marking it as too large
+	 * (negative) once it no longer fits.
+	 *
+	 * @param mantissa is the digits read so far, or negative if too large
+	 * @param digit is the next digit character
+	 * @return the new mantissa
+	 */
+	private static long accumulate(long mantissa, byte digit) {
+		if (mantissa < 0 || mantissa > Long.MAX_VALUE / 10 - 10) {
+			return -1;
+		}
+		return mantissa * 10 + (digit - '0');
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean isWhitespace(int b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+	}
+
+	/**
+	 * Creates an exception for a problem with a word of the file.
+	 *
+	 * @param token is the word with the problem
+	 * @param message describes the problem
+	 * @return the exception to throw
+	 */
+	private static LevelFormatException error(Token token, String message) {
+		return new LevelFormatException(message, token.line, token.column);
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * A Token is one word of the level file, stored as bytes in an array
+	 * that is reused for every word.
+	 */
+	private static class Token {
+		private byte[] bytes = new byte[MAX_TOKEN_LENGTH];
+		private int length;
+		private int line;
+		private int column;
+
+		private boolean is(char c) {
+			return length == 1 && bytes[0] == c;
+		}
+
+		private boolean is(byte[] word) {
+			if (length != word.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] != word[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public String toString() {
+			return new String(bytes, 0, Math.min(length, MAX_TOKEN_LENGTH),
+					StandardCharsets.ISO_8859_1);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The LevelPipeline class loads the next level file of the game in the
+ * background while the current level is played, so that moving on to the
+ * next level doesn't stall the game while a large file is read. The
+ * GameEngine plays the level files it was started with in order, so when
+ * a level in the GameEngine window is built, the file after it is read on
+ * a loader thread. When the GameEngine builds the next level, that level
+ * takes the objects that were read instead of reading the file itself.
+ * <br/><br/>
+ * Only level files are loaded ahead, and only when the LevelTemplateCache
+ * doesn't already hold them. Random levels are left alone, since
+ * they are small and must draw from the GameEngine's Random in order. A
+ * level that can't be taken from the pipeline, because the file failed to
+ * load, changed since it was loaded, or isn't the one that was loaded
+ * ahead, is simply built the usual way, which reports any problems.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelPipeline {
+
+	// the level files that the GameEngine plays, in order
+	private static String[] playlist = new String[0];
+	private static int position = -1;		// playlist index of the last level
+
+	// the file being loaded ahead, or null when there is none
+	private static String pendingFilename;
+	private static long pendingModified;	// when that file was last changed
+	private static Future<BinaryLevel> pending;
+
+	private static ExecutorService loader;	// only made once it is needed
+
+	/**
+	 * Sets the level files the GameEngine was started with, which are the
+	 * files that can be loaded ahead.
+	 *
+	 * @param levelFilenames is the sequence of level files, in the order
+	 * they are played
+	 * @return void
+	 */
+	public static synchronized void setPlaylist(String[] levelFilenames) {
+		playlist = levelFilenames.clone();
+		position = -1;
+	}
+
+	/**
+	 * Starts loading the level file that is played after the specified
+	 * level, unless it is already loaded or there is none.
+	 *
+	 * @param levelFilename is the level file that was just built, or null
+	 * for a random level
+	 * @return void
+	 */
+	public static synchronized void prefetchAfter(String levelFilename) {
+		int index = indexOf(levelFilename);
+		if (index < 0) {
+			return;
+		}
+		position = index;
+		if (index + 1 >= playlist.length || playlist[index + 1] == null
+				|| EndlessWorld.NAME.equals(playlist[index + 1])) {
+			return;
+		}
+		final String filename = playlist[index + 1];
+		if (filename.equals(pendingFilename)) {
+			return;
+		}
+		// a file that was built before is copied from its template instead
+		String templateKey = LevelTemplateCache.fileKey(filename);
+		if (templateKey != null && LevelTemplateCache.contains(templateKey)) {
+			return;
+		}
+		if (pending != null) {
+			pending.cancel(true);
+		}
+		if (loader == null) {
+			loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "LevelPipeline loader");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		pendingFilename = filename;
+		pendingModified = new File(filename).lastModified();
+		pending = loader.submit(new Callable<BinaryLevel>() {
+			public BinaryLevel call() throws IOException {
+				return BinaryLevel.load(filename);
+			}
+		});
+	}
+
+	/**
+	 * Takes the objects of a level file that was loaded ahead, waiting for
+	 * the loader to finish if it hasn't yet.
+	 *
+	 * @param levelFilename is the level file being built
+	 * @return the objects of that file, or null when the level should be
+	 * loaded the usual way
+	 */
+	public static BinaryLevel take(String levelFilename) {
+		Future<BinaryLevel> loading;
+		long modified;
+		synchronized (LevelPipeline.class) {
+			if (levelFilename == null || !levelFilename.equals(pendingFilename)) {
+				return null;
+			}
+			loading = pending;
+			modified = pendingModified;
+			pending = null;
+			pendingFilename = null;
+		}
+		try {
+			BinaryLevel level = loading.get();
+			// a file that changed since it was loaded is read again
+			return new File(levelFilename).lastModified() == modified
+					? level : null;
+		} catch (ExecutionException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a level file in the playlist, looking first after the last
+	 * level that was built, since that is where the next one usually is.
+	 *
+	 * @param levelFilename is the level file
+	 * @return its index in the playlist, or -1 when it isn't there
+	 */
+	private static int indexOf(String levelFilename) {
+		if (levelFilename == null) {
+			return -1;
+		}
+		for (int i = 0; i < playlist.length; i++) {
+			int index = (position + 1 + i) % playlist.length;
+			if (levelFilename.equals(playlist[index])) {
+				return index;
+			}
+		}
+		return -1;
+	}
+}
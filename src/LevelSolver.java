@@ -0,0 +1,1518 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The LevelSolver class finds the cheapest way (in thruster fuel) to land on
+ * every destination planet of a level in order, or shows that there is no
+ * way to do it. It follows the same fuel rules as the game:
+ * <ul>
+ * <li>thrusters burn thrusterSpeed * time fuel, one unit for each pixel they
+ * move the taxi, and stopping at warp speed takes one tick of thrust</li>
+ * <li>travelling at warp speed toward a clicked warp star burns no fuel</li>
+ * <li>flying through a gas cloud adds GasCloud.FUEL fuel, once</li>
+ * <li>flying into a planet that isn't the destination, or into any planet
+ * at warp speed, crashes the taxi</li>
+ * </ul>
+ * Positions are reduced to a graph, which is built once for each level. Its
+ * nodes are the taxi's starting position, each warp star (reached at warp
+ * speed), and eight points around the edge of each planet and gas cloud
+ * (reached with thrusters). The edges are the straight paths between them:
+ * warping to a star, warping toward a star and stopping as close to a
+ * target as possible before thrusting the rest of the way, thrusting
+ * straight to a target, or thrusting to a point beside a planet without
+ * landing, and from there around it. Each edge remembers which planets it
+ * would run into and which gas clouds it flies through, so that an A*
+ * search over (node, destination, gas clouds used) can check it in
+ * constant time. A path has to miss a planet by MARGIN pixels to count as
+ * missing it, and pass MARGIN pixels inside a gas cloud to count as
+ * collecting it, so that a pilot can follow a route without being exact
+ * to the pixel (see AutoPilot). A long warp from a star or a point beside
+ * a planet has to miss planets by more, since the taxi is never exactly
+ * there and its aim drifts further the longer it warps.
+ * <br/><br/>
+ * Paths that wrap around the edges of the screen are in the graph too,
+ * although a gas cloud is only collected on the same side of an edge as
+ * the taxi, like in the game. But a level is only reported as unwinnable
+ * when no route exists in this graph, so a level that needs a path the
+ * graph doesn't contain (like one that stops at warp speed somewhere other
+ * than closest to a target) may be rejected even though a very careful
+ * player could win it. A solver can also start from any taxi and
+ * destination, which is how the AutoPilot plans again partway through a
+ * level.
+ * <br/><br/>
+ * The search estimates the rest of a route by the least fuel it would take
+ * with a full tank and every gas cloud still there, found once for each
+ * destination by searching the graph backwards. So it goes almost
+ * straight to the cheapest route, unless the fuel runs short. Building the
+ * graph takes most of the time, since every node has an edge for every
+ * warp star and target. On one core, a level with 6 of each object (like
+ * the random levels) takes about 20 ms, and a level with 10 of each about
+ * 85 ms. main() solves the files on every core at once, and checks a
+ * corpus of 1000 random level files in 20 s on one core.
+ *
+ * Usage: java LevelSolver levelFileOrFolder ...
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelSolver {
+
+	// the result of a search
+	public static final byte SOLVED = 0;
+	public static final byte UNWINNABLE = 1;
+	public static final byte GAVE_UP = 2;
+
+	// number of searched states before a search gives up
+	public static final int DEFAULT_MAX_STATES = 1000000;
+
+	// kinds of edges in the graph
+	private static final byte WARP = 0;			// warp to a star
+	private static final byte WARP_THRUST = 1;	// warp, stop, then thrust
+	private static final byte THRUST = 2;		// thrust straight to a target
+	private static final byte NEAR = 3;			// thrust to beside a planet
+
+	// points around each planet and gas cloud, and their unit directions
+	private static final int SIDES = 8;
+	private static final float[] SIDE_X = new float[SIDES];
+	private static final float[] SIDE_Y = new float[SIDES];
+
+	static {
+		for (int side = 0; side < SIDES; side++) {
+			SIDE_X[side] = (float) Math.cos(side * 2 * Math.PI / SIDES);
+			SIDE_Y[side] = (float) Math.sin(side * 2 * Math.PI / SIDES);
+		}
+	}
+	// the most planets and gas clouds that masks of them can hold
+	private static final int MAX_OBJECTS = 64;
+	// pixels that a path must keep clear of planets, or go into gas clouds
+	public static final float MARGIN = 1;
+
+	// orders the states to search, the most promising first. States aren't
+	// Comparable, since a HashMap would then compare unequal states as equal
+	// when their hashes collide
+	private static final Comparator<State> BY_ESTIMATE =
+			new Comparator<State>() {
+				public int compare(State state, State other) {
+					return Float.compare(state.estimate, other.estimate);
+				}
+			};
+
+	// initialized variables
+	private Level level;
+	private int width;
+	private int height;
+	private float startFuel;
+	private int firstDestination;	// the destination the taxi starts with
+	private float stopCost;		// fuel to drop out of warp speed
+	private float warpStep;		// pixels moved at warp speed in one tick
+	private float taxiSize;
+	private int starCount;
+	private int planetCount;
+	private int gasCount;
+	private float[] nodeX;
+	private float[] nodeY;
+	private ArrayList<ArrayList<Edge>> edges;
+	// the least fuel from each node to land on each destination and the
+	// rest, by destination and then node
+	private float[][] remainingCost;
+	// how far along the current warp path each object is first in reach
+	private float[] planetEntries;
+	private float[] destinationEntries;
+	private float[] gasEntries;
+	// ... and with the wider margin that a drifting warp has to keep
+	private float[] driftPlanetEntries;
+	private float[] driftDestinationEntries;
+
+	/**
+	 * Initializes a solver for a level and builds its graph. The level must
+	 * not have been played yet.
+	 *
+	 * @param level is the level to solve, which should be headless
+	 * @throws IllegalArgumentException when the level has no taxi, or more
+	 * planets or gas clouds than the solver can keep track of
+	 */
+	public LevelSolver(Level level) {
+		this(level, level.getTaxi(), 0);
+	}
+
+	/**
+	 * Initializes a solver for a taxi that is part of the way through a
+	 * level, and builds its graph from where the taxi is now, with the fuel
+	 * it has now and the gas clouds that are left. The taxi must not be
+	 * travelling at warp speed.
+	 *
+	 * @param level is the level the taxi is in, which should be headless
+	 * @param taxi is the taxi, which can be one that the level doesn't know
+	 * about (see Fleet)
+	 * @param destination is the slot of the taxi's destination planet
+	 * @throws IllegalArgumentException when there is no taxi, or more
+	 * planets or gas clouds than the solver can keep track of
+	 */
+	public LevelSolver(Level level, Taxi taxi, int destination) {
+		this.level = level;
+		if (taxi == null) {
+			throw new IllegalArgumentException("the level has no taxi");
+		}
+		if (!canSolve(level)) {
+			throw new IllegalArgumentException("the level has more than "
+					+ MAX_OBJECTS + " planets or gas clouds");
+		}
+		width = level.getWidth();
+		height = level.getHeight();
+		startFuel = taxi.getFuel();
+		firstDestination = destination;
+		stopCost = taxi.getThrusterSpeed() * Level.TICK_TIME;
+		warpStep = taxi.getWarpSpeed() * Level.TICK_TIME;
+		taxiSize = taxi.body.getSize();
+		starCount = level.warpStars.size();
+		planetCount = level.planets.size();
+		gasCount = level.gasClouds.size();
+		buildNodes(taxi.body.getX(), taxi.body.getY());
+		buildEdges();
+		findRemainingCosts();
+	}
+
+	/**
+	 * Determines whether a solver can keep track of every planet and gas
+	 * cloud of a level.
+	 *
+	 * @param level is the level to solve
+	 * @return true when the level has few enough of them, otherwise false
+	 */
+	public static boolean canSolve(Level level) {
+		return level.planets.size() <= MAX_OBJECTS
+				&& level.gasClouds.size() <= MAX_OBJECTS;
+	}
+
+	/**
+	 * Searches for the cheapest route through the level.
+	 *
+	 * @param maxStates is the number of states to search before giving up
+	 * @return the route, or why there is none
+	 */
+	public Route solve(int maxStates) {
+		return solve(maxStates, 0);
+	}
+
+	/**
+	 * Searches for the cheapest route through the level that always keeps
+	 * some fuel in reserve, for a pilot that burns a little more than the
+	 * route does.
+	 *
+	 * @param maxStates is the number of states to search before giving up
+	 * @param reserve is the fuel that must be left after every step
+	 * @return the route, or why there is none
+	 */
+	public Route solve(int maxStates, float reserve) {
+		HashMap<State, Float> bestCost = new HashMap<State, Float>();
+		PriorityQueue<State> open = new PriorityQueue<State>(11, BY_ESTIMATE);
+		State start = new State(0, firstDestination, 0L, 0, null, null);
+		if (remainingCost[firstDestination][0] == Float.MAX_VALUE) {
+			return new Route(UNWINNABLE, null, 0, this);
+		}
+		open.add(start);
+		bestCost.put(start, 0f);
+		int expanded = 0;
+		while (!open.isEmpty()) {
+			State state = open.poll();
+			if (state.cost > bestCost.get(state)) {
+				continue;	// already reached more cheaply
+			}
+			if (state.destination == planetCount) {
+				return new Route(SOLVED, state, expanded, this);
+			}
+			if (++expanded > maxStates) {
+				return new Route(GAVE_UP, null, expanded, this);
+			}
+			float fuel = startFuel
+					+ GasCloud.FUEL * Long.bitCount(state.gasUsed) - state.cost;
+			ArrayList<Edge> options = edges.get(state.node);
+			for (int i = 0; i < options.size(); i++) {
+				Edge edge = options.get(i);
+				if (!edge.isUsable(state.destination, state.gasUsed)) {
+					continue;
+				}
+				// gas collected at warp speed arrives before the thrust
+				float available = fuel + GasCloud.FUEL
+						* Long.bitCount(edge.gasAtWarp & ~state.gasUsed);
+				if (available - edge.cost <= reserve) {
+					continue;
+				}
+				int destination = state.destination;
+				if (edge.planet == destination) {
+					destination++;
+				}
+				State next = new State(edge.to, destination,
+						state.gasUsed | edge.gasAtWarp | edge.gasByThrust,
+						state.cost + edge.cost, state, edge);
+				float remaining = remainingCost[destination][edge.to];
+				if (remaining == Float.MAX_VALUE) {
+					continue;	// the rest of the destinations can't be reached
+				}
+				Float known = bestCost.get(next);
+				if (known == null || next.cost < known) {
+					bestCost.put(next, next.cost);
+					next.estimate = next.cost + remaining;
+					open.add(next);
+				}
+			}
+		}
+		return new Route(UNWINNABLE, null, expanded, this);
+	}
+
+	/**
+	 * Places the nodes of the graph: the taxi's start, each warp star, and
+	 * the points around each planet and gas cloud where the taxi first
+	 * touches them.
+	 *
+	 * @param taxiX is the horizontal starting position of the taxi
+	 * @param taxiY is the vertical starting position of the taxi
+	 * @return void
+	 */
+	private void buildNodes(float taxiX, float taxiY) {
+		int count = 1 + starCount + SIDES * (planetCount + gasCount);
+		nodeX = new float[count];
+		nodeY = new float[count];
+		nodeX[0] = taxiX;
+		nodeY[0] = taxiY;
+		for (int i = 0; i < starCount; i++) {
+			nodeX[starNode(i)] = level.warpStars.x[i];
+			nodeY[starNode(i)] = level.warpStars.y[i];
+		}
+		for (int i = 0; i < planetCount + gasCount; i++) {
+			float x = targetX(i);
+			float y = targetY(i);
+			float reach = targetReach(i);
+			for (int side = 0; side < SIDES; side++) {
+				nodeX[sideNode(i, side)] = x + reach * SIDE_X[side];
+				nodeY[sideNode(i, side)] = y + reach * SIDE_Y[side];
+			}
+		}
+	}
+
+	/**
+	 * Connects every node to every warp star and every target.
+	 *
+	 * @return void
+	 */
+	private void buildEdges() {
+		planetEntries = new float[planetCount];
+		destinationEntries = new float[planetCount];
+		gasEntries = new float[gasCount];
+		driftPlanetEntries = new float[planetCount];
+		driftDestinationEntries = new float[planetCount];
+		// a star covered by the stars drawn on top of it can't be clicked
+		boolean[] isClickable = new boolean[starCount];
+		for (int star = 0; star < starCount; star++) {
+			isClickable[star] = AutoPilot.click(level, star) != null;
+		}
+		edges = new ArrayList<ArrayList<Edge>>(nodeX.length);
+		for (int node = 0; node < nodeX.length; node++) {
+			ArrayList<Edge> options = new ArrayList<Edge>((starCount + 1)
+					* (planetCount + gasCount + 1) + planetCount + SIDES);
+			boolean isAtWarp = isStarNode(node);
+			// how far from the node a taxi can really be, since it stops
+			// within half a thruster step (stopCost pixels), or half a warp
+			// step at a star
+			float error = node == 0 ? 0 : (isAtWarp ? warpStep : stopCost) / 2;
+			float x = nodeX[node];
+			float y = nodeY[node];
+			for (int star = 0; star < starCount; star++) {
+				if (starNode(star) == node || !isClickable[star]) {
+					continue;
+				}
+				float dx = level.warpStars.x[star] - x;
+				float dy = level.warpStars.y[star] - y;
+				float length = (float) Math.sqrt(dx * dx + dy * dy);
+				if (length < 1) {
+					continue;	// can't warp toward a star the taxi is on
+				}
+				float directionX = dx / length;
+				float directionY = dy / length;
+				// warps through the star, and can then click the next one
+				float range = traceWarp(x, y, directionX, directionY, MARGIN,
+						width + height, planetEntries, destinationEntries);
+				traceGas(x, y, directionX, directionY);
+				if (length + warpStep <= range) {
+					Edge edge = new Edge(WARP, starNode(star), star, -1, 0);
+					setWarpPath(edge, length, planetEntries,
+							destinationEntries);
+					options.add(edge);
+				}
+				// or stops as close as it can to each target
+				for (int target = 0; target < planetCount + gasCount;
+						target++) {
+					addWarpThrust(options, x, y, directionX, directionY, range,
+							length, error, star, target);
+				}
+			}
+			for (int target = 0; target < planetCount + gasCount; target++) {
+				Edge edge = thrustEdge(x, y, isAtWarp ? stopCost : 0, target);
+				edge.kind = THRUST;
+				options.add(edge);
+			}
+			// or stops next to a planet without landing, to warp from there
+			// or to go around it
+			for (int planet = 0; planet < planetCount; planet++) {
+				Edge edge = thrustEdge(x, y, isAtWarp ? stopCost : 0, planet);
+				if (edge.to != node) {
+					edge.kind = NEAR;
+					edge.planet = -1;
+					edge.beside = planet;
+					options.add(edge);
+				}
+			}
+			int around = node - 1 - starCount;
+			if (around >= 0 && around < SIDES * planetCount) {
+				for (int side = 0; side < SIDES; side++) {
+					int to = sideNode(around / SIDES, side);
+					if (to != node && isOnScreen(to)) {
+						Edge edge = thrustPath(x, y, 0, to, nodeX[to],
+								nodeY[to]);
+						edge.kind = NEAR;
+						edge.beside = around / SIDES;
+						options.add(edge);
+					}
+				}
+			}
+			for (int i = 0; i < options.size(); i++) {
+				options.get(i).from = node;
+			}
+			edges.add(options);
+		}
+	}
+
+	/**
+	 * Finds the least fuel that it takes from each node to land on each
+	 * destination and all of the ones after it, for the search to estimate
+	 * the rest of a route with. This leaves out the fuel the taxi has and
+	 * the gas clouds it has used, so it is never more than the real cost,
+	 * and nodes that can't reach the destinations at all are never searched.
+	 * Each destination is found backwards from the one after it, by
+	 * Dijkstra's algorithm over the edges turned around.
+	 *
+	 * @return void
+	 */
+	private void findRemainingCosts() {
+		int nodeCount = nodeX.length;
+		int[] arrivals = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			ArrayList<Edge> options = edges.get(node);
+			for (int i = 0; i < options.size(); i++) {
+				arrivals[options.get(i).to]++;
+			}
+		}
+		ArrayList<ArrayList<Edge>> incoming =
+				new ArrayList<ArrayList<Edge>>(nodeCount);
+		for (int node = 0; node < nodeCount; node++) {
+			incoming.add(new ArrayList<Edge>(arrivals[node]));
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			ArrayList<Edge> options = edges.get(node);
+			for (int i = 0; i < options.size(); i++) {
+				incoming.get(options.get(i).to).add(options.get(i));
+			}
+		}
+		remainingCost = new float[planetCount + 1][nodeCount];
+		boolean[] isDone = new boolean[nodeCount];
+		for (int destination = planetCount - 1;
+				destination >= firstDestination; destination--) {
+			float[] cost = remainingCost[destination];
+			float[] after = remainingCost[destination + 1];
+			Arrays.fill(cost, Float.MAX_VALUE);
+			Arrays.fill(isDone, false);
+			// landing on the destination, then going on from there
+			for (int node = 0; node < nodeCount; node++) {
+				ArrayList<Edge> options = edges.get(node);
+				for (int i = 0; i < options.size(); i++) {
+					Edge edge = options.get(i);
+					if (edge.planet == destination
+							&& after[edge.to] != Float.MAX_VALUE
+							&& edge.isUsable(destination, 0)) {
+						cost[node] = Math.min(cost[node],
+								edge.cost + after[edge.to]);
+					}
+				}
+			}
+			// or getting to a node that can
+			while (true) {
+				int next = -1;
+				for (int node = 0; node < nodeCount; node++) {
+					if (!isDone[node] && cost[node] != Float.MAX_VALUE
+							&& (next < 0 || cost[node] < cost[next])) {
+						next = node;
+					}
+				}
+				if (next < 0) {
+					break;
+				}
+				isDone[next] = true;
+				ArrayList<Edge> arriving = incoming.get(next);
+				for (int i = 0; i < arriving.size(); i++) {
+					Edge edge = arriving.get(i);
+					if (edge.planet < 0 && edge.isUsable(destination, 0)) {
+						cost[edge.from] = Math.min(cost[edge.from],
+								edge.cost + cost[next]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the edge that warps toward a star, stops as close as it safely
+	 * can to a target, and then thrusts the rest of the way.
+	 *
+	 * @param options is the list of edges that the new edge is added to
+	 * @param x is the horizontal position the warp starts at
+	 * @param y is the vertical position the warp starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @param range is how far the taxi can warp in that direction while
+	 * every planet is its normal size, from traceWarp()
+	 * @param passed is the distance to the star from where the warp starts
+	 * @param error is how far from that position the taxi can really be
+	 * @param star is the warp star that is clicked
+	 * @param target is the planet or gas cloud to end up at
+	 * @return void
+	 */
+	private void addWarpThrust(ArrayList<Edge> options, float x, float y,
+			float directionX, float directionY, float range, float passed,
+			float error, int star, int target) {
+		// a planet being landed on is the larger destination
+		if (target < planetCount) {
+			range = Math.min(range, destinationEntries[target]);
+		}
+		range -= warpStep;
+		if (range <= warpStep) {
+			return;	// no better than thrusting from here
+		}
+		// the closest the warp gets to any copy of the target, where the
+		// closest copy is never more than half a screen from the path
+		float endX = x + directionX * range;
+		float endY = y + directionY * range;
+		float stop = -1;
+		float closest = Float.MAX_VALUE;
+		int lastX = lastCopy(Math.max(x, endX) + width / 2, targetX(target),
+				width);
+		int lastY = lastCopy(Math.max(y, endY) + height / 2, targetY(target),
+				height);
+		for (int copyX = firstCopy(Math.min(x, endX) - width / 2,
+				targetX(target), width); copyX <= lastX; copyX++) {
+			for (int copyY = firstCopy(Math.min(y, endY) - height / 2,
+					targetY(target), height); copyY <= lastY; copyY++) {
+				float dx = targetX(target) + copyX * width - x;
+				float dy = targetY(target) + copyY * height - y;
+				float along = Math.max(0, Math.min(range,
+						dx * directionX + dy * directionY));
+				float besideX = dx - directionX * along;
+				float besideY = dy - directionY * along;
+				float distance = besideX * besideX + besideY * besideY;
+				if (distance < closest) {
+					closest = distance;
+					stop = along;
+				}
+			}
+		}
+		if (stop <= warpStep) {
+			return;
+		}
+		// the warp aims at the star from where the taxi really is, so its
+		// path drifts aside from this one everywhere but at the star
+		float drift = error * Math.abs(stop - passed) / passed;
+		float[] planets = planetEntries;
+		float[] destinations = destinationEntries;
+		if (drift > 0) {
+			planets = driftPlanetEntries;
+			destinations = driftDestinationEntries;
+			// only the path up to the stop matters
+			float driftRange = traceWarp(x, y, directionX, directionY,
+					MARGIN + drift, stop + warpStep, planets, destinations);
+			if (target < planetCount) {
+				driftRange = Math.min(driftRange, destinations[target]);
+			}
+			// stop sooner, where the drifted path can't run into a planet
+			stop = Math.min(stop, driftRange - warpStep);
+		}
+		if (stop > warpStep) {
+			// the taxi stops within half a warp step of the point, which can
+			// take that much more thrust
+			Edge edge = thrustEdge(x + directionX * stop,
+					y + directionY * stop, stopCost + warpStep / 2, target);
+			edge.kind = WARP_THRUST;
+			edge.star = star;
+			setWarpPath(edge, stop, planets, destinations);
+			options.add(edge);
+		}
+	}
+
+	/**
+	 * Creates an edge that thrusts from a position to the nearest node
+	 * around a target, going across the edges of the screen when that is
+	 * shorter.
+	 *
+	 * @param x is the horizontal position the thrust starts at
+	 * @param y is the vertical position the thrust starts at
+	 * @param extraCost is the fuel spent before thrusting
+	 * @param target is the planet or gas cloud to thrust to
+	 * @return the new edge
+	 */
+	private Edge thrustEdge(float x, float y, float extraCost, int target) {
+		x = onScreen(x, width);
+		y = onScreen(y, height);
+		// the copy of the target that is the fewest pixels away
+		float targetX = x + AutoPilot.wrap(targetX(target) - x, width);
+		float targetY = y + AutoPilot.wrap(targetY(target) - y, height);
+		// the side of the target on the screen that faces the taxi
+		int side = 0;
+		float facing = -Float.MAX_VALUE;
+		for (int i = 0; i < SIDES; i++) {
+			if (!isOnScreen(sideNode(target, i))) {
+				continue;
+			}
+			float dot = (x - targetX) * SIDE_X[i] + (y - targetY) * SIDE_Y[i];
+			if (dot > facing) {
+				side = i;
+				facing = dot;
+			}
+		}
+		int to = sideNode(target, side);
+		Edge edge = thrustPath(x, y, extraCost, to,
+				nodeX[to] + targetX - targetX(target),
+				nodeY[to] + targetY - targetY(target));
+		edge.planet = target < planetCount ? target : -1;
+		edge.targetX = targetX(target);
+		edge.targetY = targetY(target);
+		if (target >= planetCount) {
+			edge.gas = target - planetCount;
+			edge.gasByThrust |= 1L << edge.gas;
+		}
+		return edge;
+	}
+
+	/**
+	 * Creates an edge that thrusts in a straight line from a position to a
+	 * node, or to a copy of the node on a screen around this one.
+	 *
+	 * @param x is the horizontal position the thrust starts at, on screen
+	 * @param y is the vertical position the thrust starts at, on screen
+	 * @param extraCost is the fuel spent before thrusting
+	 * @param to is the node the thrust ends at
+	 * @param toX is the horizontal position of the copy of that node
+	 * @param toY is the vertical position of the copy of that node
+	 * @return the new edge
+	 */
+	private Edge thrustPath(float x, float y, float extraCost, int to,
+			float toX, float toY) {
+		float cost = extraCost + Math.abs(toX - x) + Math.abs(toY - y);
+		Edge edge = new Edge(THRUST, to, -1, -1, cost);
+		edge.addThrustPath(this, x, y, toX, toY);
+		edge.startX = x;
+		edge.startY = y;
+		edge.endX = onScreen(toX, width);
+		edge.endY = onScreen(toY, height);
+		return edge;
+	}
+
+	/**
+	 * Follows the path of the taxi at warp speed in a direction, wrapping
+	 * around the edges of the screen, and finds how far along it each planet
+	 * first comes within reach.
+	 *
+	 * @param x is the horizontal position the warp starts at
+	 * @param y is the vertical position the warp starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @param margin is how far outside of its reach a planet has to be
+	 * missed by
+	 * @param length is how far along the path to look
+	 * @param planets receives the distance to each planet at its normal
+	 * size, for setWarpPath()
+	 * @param destinations receives the distance to each planet at its
+	 * destination size
+	 * @return how far the taxi can warp before it would run into a planet
+	 * of its normal size, up to the length
+	 */
+	private float traceWarp(float x, float y, float directionX,
+			float directionY, float margin, float length, float[] planets,
+			float[] destinations) {
+		float range = length;
+		float planetReach = reach(EntityStore.PLANET_SIZE);
+		float destinationReach = reach(EntityStore.DESTINATION_SIZE);
+		float endX = x + directionX * length;
+		float endY = y + directionY * length;
+		for (int i = 0; i < planetCount; i++) {
+			if (!isInBox(x, y, endX, endY, level.planets.x[i],
+					level.planets.y[i], destinationReach + margin)) {
+				planets[i] = Float.MAX_VALUE;
+				destinations[i] = Float.MAX_VALUE;
+				continue;
+			}
+			planets[i] = entryDistance(x, y, directionX, directionY, length,
+					level.planets.x[i], level.planets.y[i],
+					planetReach + margin(x, y, i, planetReach, margin));
+			destinations[i] = entryDistance(x, y, directionX, directionY,
+					length, level.planets.x[i], level.planets.y[i],
+					destinationReach
+					+ margin(x, y, i, destinationReach, margin));
+			range = Math.min(range, planets[i]);
+		}
+		return range;
+	}
+
+	/**
+	 * Follows the path of the taxi at warp speed in a direction, like
+	 * traceWarp(), and finds how far along it each gas cloud is collected.
+	 * These distances are kept for setWarpPath(), until the next path is
+	 * traced.
+	 *
+	 * @param x is the horizontal position the warp starts at
+	 * @param y is the vertical position the warp starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @return void
+	 */
+	private void traceGas(float x, float y, float directionX,
+			float directionY) {
+		for (int i = 0; i < gasCount; i++) {
+			gasEntries[i] = gasEntryDistance(x, y, directionX, directionY,
+					width + height, i);
+		}
+	}
+
+	/**
+	 * Records which planets and gas clouds an edge passes at warp speed,
+	 * along the path last traced by traceWarp() and traceGas().
+	 *
+	 * @param edge is the edge that warps along the traced path
+	 * @param length is how far the edge warps along it
+	 * @param planets is the distance to each planet at its normal size
+	 * @param destinations is the distance to each planet at its destination
+	 * size
+	 * @return void
+	 */
+	private void setWarpPath(Edge edge, float length, float[] planets,
+			float[] destinations) {
+		edge.warpLength = length;
+		for (int i = 0; i < planetCount; i++) {
+			if (planets[i] <= length) {
+				edge.warpPlanets |= 1L << i;
+			}
+			if (destinations[i] <= length) {
+				edge.warpDestinations |= 1L << i;
+			}
+		}
+		for (int i = 0; i < gasCount; i++) {
+			if (gasEntries[i] <= length) {
+				edge.gasAtWarp |= 1L << i;
+			}
+		}
+	}
+
+	/**
+	 * Finds how far along a ray it first comes within reach of a point, or
+	 * of any copy of the point on the screens around this one.
+	 *
+	 * @param x is the horizontal position the ray starts at
+	 * @param y is the vertical position the ray starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @param length is the length of the ray
+	 * @param pointX is the horizontal position of the point
+	 * @param pointY is the vertical position of the point
+	 * @param reach is the distance from the point that counts
+	 * @return the distance along the ray (0 when it starts within reach),
+	 * or Float.MAX_VALUE when it doesn't come within reach
+	 */
+	private float entryDistance(float x, float y, float directionX,
+			float directionY, float length, float pointX, float pointY,
+			float reach) {
+		float endX = x + directionX * length;
+		float endY = y + directionY * length;
+		float entry = Float.MAX_VALUE;
+		int lastX = lastCopy(Math.max(x, endX) + reach, pointX, width);
+		int lastY = lastCopy(Math.max(y, endY) + reach, pointY, height);
+		for (int copyX = firstCopy(Math.min(x, endX) - reach, pointX, width);
+				copyX <= lastX; copyX++) {
+			for (int copyY = firstCopy(Math.min(y, endY) - reach, pointY,
+					height); copyY <= lastY; copyY++) {
+				entry = Math.min(entry, entryDistance(x, y, directionX,
+						directionY, pointX + copyX * width,
+						pointY + copyY * height, reach));
+			}
+		}
+		return entry <= length ? entry : Float.MAX_VALUE;
+	}
+
+	/**
+	 * Finds how far along a ray it first comes within reach of a point.
+	 *
+	 * @param x is the horizontal position the ray starts at
+	 * @param y is the vertical position the ray starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @param pointX is the horizontal position of the point
+	 * @param pointY is the vertical position of the point
+	 * @param reach is the distance from the point that counts
+	 * @return the distance along the ray (0 when it starts within reach),
+	 * or Float.MAX_VALUE when the ray never comes within reach
+	 */
+	private static float entryDistance(float x, float y, float directionX,
+			float directionY, float pointX, float pointY, float reach) {
+		float dx = pointX - x;
+		float dy = pointY - y;
+		float squaredReach = reach * reach;
+		if (dx * dx + dy * dy <= squaredReach) {
+			return 0;
+		}
+		float along = dx * directionX + dy * directionY;
+		float besideSquared = dx * dx + dy * dy - along * along;
+		if (along < 0 || besideSquared > squaredReach) {
+			return Float.MAX_VALUE;
+		}
+		return along - (float) Math.sqrt(squaredReach - besideSquared);
+	}
+
+	/**
+	 * Finds how far along a ray it first collects a gas cloud. The game only
+	 * finds the gas clouds that the taxi touches on its side of the edges
+	 * of the screen, so each copy of the gas cloud on the screens around
+	 * this one only counts while the ray is on that copy's screen.
+	 *
+	 * @param x is the horizontal position the ray starts at
+	 * @param y is the vertical position the ray starts at
+	 * @param directionX is the horizontal part of the unit direction
+	 * @param directionY is the vertical part of the unit direction
+	 * @param length is how far along the ray matters
+	 * @param gas is the slot of the gas cloud
+	 * @return the distance along the ray, or Float.MAX_VALUE when it doesn't
+	 * collect the gas cloud
+	 */
+	private float gasEntryDistance(float x, float y, float directionX,
+			float directionY, float length, int gas) {
+		float reach = reach(EntityStore.GAS_SIZE) - MARGIN;
+		float pointX = level.gasClouds.x[gas];
+		float pointY = level.gasClouds.y[gas];
+		float endX = x + directionX * length;
+		float endY = y + directionY * length;
+		float entry = Float.MAX_VALUE;
+		int lastX = lastCopy(Math.max(x, endX) + reach, pointX, width);
+		int lastY = lastCopy(Math.max(y, endY) + reach, pointY, height);
+		for (int copyX = firstCopy(Math.min(x, endX) - reach, pointX, width);
+				copyX <= lastX; copyX++) {
+			for (int copyY = firstCopy(Math.min(y, endY) - reach, pointY,
+					height); copyY <= lastY; copyY++) {
+				float dx = pointX + copyX * width - x;
+				float dy = pointY + copyY * height - y;
+				float along = dx * directionX + dy * directionY;
+				float beside = reach * reach - (dx * dx + dy * dy
+						- along * along);
+				if (beside < 0) {
+					continue;
+				}
+				// the part of the ray within reach, and on the copy's screen
+				float from = Math.max(0, along - (float) Math.sqrt(beside));
+				float to = Math.min(length, along + (float) Math.sqrt(beside));
+				from = Math.max(from, enter(x, directionX, copyX * width,
+						width));
+				from = Math.max(from, enter(y, directionY, copyY * height,
+						height));
+				to = Math.min(to, leave(x, directionX, copyX * width, width));
+				to = Math.min(to, leave(y, directionY, copyY * height, height));
+				if (from <= to) {
+					entry = Math.min(entry, from);
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Finds how far along a ray it enters or leaves a range along one axis.
+	 *
+	 * @param start is the position the ray starts at, along the axis
+	 * @param direction is the part of the unit direction along the axis
+	 * @param from is the start of the range
+	 * @param size is the size of the range
+	 * @return the distance along the ray, which is infinite when the ray
+	 * never enters or never leaves
+	 */
+	private static float enter(float start, float direction, float from,
+			float size) {
+		if (direction == 0) {
+			return start >= from && start <= from + size
+					? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+		}
+		return Math.min((from - start) / direction,
+				(from + size - start) / direction);
+	}
+
+	private static float leave(float start, float direction, float from,
+			float size) {
+		if (direction == 0) {
+			return start >= from && start <= from + size
+					? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+		}
+		return Math.max((from - start) / direction,
+				(from + size - start) / direction);
+	}
+
+	/**
+	 * Finds how close a line segment comes to a point, or to any copy of the
+	 * point on the screens around this one.
+	 *
+	 * @param x1 is the horizontal position of the start of the segment
+	 * @param y1 is the vertical position of the start of the segment
+	 * @param x2 is the horizontal position of the end of the segment
+	 * @param y2 is the vertical position of the end of the segment
+	 * @param pointX is the horizontal position of the point
+	 * @param pointY is the vertical position of the point
+	 * @param reach is the largest distance that matters
+	 * @return the squared distance, or Float.MAX_VALUE when it is more than
+	 * reach
+	 */
+	private float squaredDistance(float x1, float y1, float x2, float y2,
+			float pointX, float pointY, float reach) {
+		float closest = Float.MAX_VALUE;
+		int lastX = lastCopy(Math.max(x1, x2) + reach, pointX, width);
+		int lastY = lastCopy(Math.max(y1, y2) + reach, pointY, height);
+		for (int copyX = firstCopy(Math.min(x1, x2) - reach, pointX, width);
+				copyX <= lastX; copyX++) {
+			for (int copyY = firstCopy(Math.min(y1, y2) - reach, pointY,
+					height); copyY <= lastY; copyY++) {
+				closest = Math.min(closest, squaredDistance(x1, y1, x2, y2,
+						pointX + copyX * width, pointY + copyY * height));
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * Finds how close a line segment comes to a point.
+	 *
+	 * @param x1 is the horizontal position of the start of the segment
+	 * @param y1 is the vertical position of the start of the segment
+	 * @param x2 is the horizontal position of the end of the segment
+	 * @param y2 is the vertical position of the end of the segment
+	 * @param pointX is the horizontal position of the point
+	 * @param pointY is the vertical position of the point
+	 * @return the squared distance between the segment and the point
+	 */
+	private static float squaredDistance(float x1, float y1, float x2,
+			float y2, float pointX, float pointY) {
+		float segmentX = x2 - x1;
+		float segmentY = y2 - y1;
+		float squaredLength = segmentX * segmentX + segmentY * segmentY;
+		float t = 0;
+		if (squaredLength > 0) {
+			t = ((pointX - x1) * segmentX + (pointY - y1) * segmentY)
+					/ squaredLength;
+			t = Math.max(0, Math.min(1, t));
+		}
+		float dx = x1 + segmentX * t - pointX;
+		float dy = y1 + segmentY * t - pointY;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Finds the first and last copies of a position, on the screens to the
+	 * left and right (or above and below) of this one, that lie within a
+	 * range along one axis. Copy 0 is the position itself.
+	 *
+	 * @param from is the start of the range
+	 * @param position is the position along the axis
+	 * @param length is the width or height of the screen
+	 * @return the number of the first or last copy within the range
+	 */
+	private static int firstCopy(float from, float position, int length) {
+		return (int) Math.ceil((from - position) / length);
+	}
+
+	private static int lastCopy(float to, float position, int length) {
+		return (int) Math.floor((to - position) / length);
+	}
+
+	/**
+	 * Moves a position along one axis onto the screen.
+	 *
+	 * @param position is the position along the axis
+	 * @param length is the width or height of the screen
+	 * @return the same position on the screen, from 0 up to length
+	 */
+	private static float onScreen(float position, int length) {
+		position %= length;
+		return position < 0 ? position + length : position;
+	}
+
+	/**
+	 * Finds which planets a path would run into, and which gas clouds it
+	 * would fly through.
+	 *
+	 * @param x1 is the horizontal position of the start of the path
+	 * @param y1 is the vertical position of the start of the path
+	 * @param x2 is the horizontal position of the end of the path
+	 * @param y2 is the vertical position of the end of the path
+	 * @param masks receives the planets within reach at their normal size,
+	 * at their destination size, and the gas clouds within reach
+	 * @return void
+	 */
+	private void findObjectsNear(float x1, float y1, float x2, float y2,
+			long[] masks) {
+		masks[0] = 0;
+		masks[1] = 0;
+		masks[2] = 0;
+		float normalReach = reach(EntityStore.PLANET_SIZE);
+		float largeReach = reach(EntityStore.DESTINATION_SIZE);
+		for (int i = 0; i < planetCount; i++) {
+			if (!isInBox(x1, y1, x2, y2, level.planets.x[i],
+					level.planets.y[i], largeReach + MARGIN)) {
+				continue;
+			}
+			float planetReach = normalReach
+					+ margin(x1, y1, i, normalReach, MARGIN);
+			float destinationReach = largeReach
+					+ margin(x1, y1, i, largeReach, MARGIN);
+			float distance = squaredDistance(x1, y1, x2, y2, level.planets.x[i],
+					level.planets.y[i], destinationReach);
+			if (distance <= planetReach * planetReach) {
+				masks[0] |= 1L << i;
+			}
+			if (distance <= destinationReach * destinationReach) {
+				masks[1] |= 1L << i;
+			}
+		}
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+		float length = (float) Math.sqrt(dx * dx + dy * dy);
+		float gasReach = reach(EntityStore.GAS_SIZE);
+		for (int i = 0; i < gasCount; i++) {
+			if (!isInBox(x1, y1, x2, y2, level.gasClouds.x[i],
+					level.gasClouds.y[i], gasReach)) {
+				continue;
+			}
+			if (length == 0 ? gasEntryDistance(x1, y1, 1, 0, 0, i) == 0
+					: gasEntryDistance(x1, y1, dx / length, dy / length,
+							length, i) <= length) {
+				masks[2] |= 1L << i;
+			}
+		}
+	}
+
+	private float reach(float size) {
+		return (taxiSize + size) / 2;
+	}
+
+	/**
+	 * Determines whether a point, or any copy of it on the screens around
+	 * this one, is in the box around a line segment grown by a reach. This
+	 * is much quicker than finding how close the segment comes, so it rules
+	 * out most objects first.
+	 *
+	 * @param x1 is the horizontal position of the start of the segment
+	 * @param y1 is the vertical position of the start of the segment
+	 * @param x2 is the horizontal position of the end of the segment
+	 * @param y2 is the vertical position of the end of the segment
+	 * @param pointX is the horizontal position of the point
+	 * @param pointY is the vertical position of the point
+	 * @param reach is the distance from the segment that counts
+	 * @return true when the point may be within reach, otherwise false
+	 */
+	private boolean isInBox(float x1, float y1, float x2, float y2,
+			float pointX, float pointY, float reach) {
+		// the copy closest to the middle of the box is the one to check
+		float dx = pointX - (x1 + x2) / 2;
+		float dy = pointY - (y1 + y2) / 2;
+		dx = AutoPilot.wrap(dx - width * (int) (dx / width), width);
+		dy = AutoPilot.wrap(dy - height * (int) (dy / height), height);
+		return Math.abs(dx) <= Math.abs(x2 - x1) / 2 + reach
+				&& Math.abs(dy) <= Math.abs(y2 - y1) / 2 + reach;
+	}
+
+	/**
+	 * Finds how far outside of its reach a path has to miss a planet by. A
+	 * taxi that stopped just short of a planet is already closer than the
+	 * margin, so its paths only have to miss the planet itself.
+	 *
+	 * @param x is the horizontal position the path starts at
+	 * @param y is the vertical position the path starts at
+	 * @param planet is the slot of the planet
+	 * @param reach is how close the taxi can come without touching it
+	 * @param margin is how far the planet should be missed by
+	 * @return the margin, or 0 when the path starts within it
+	 */
+	private float margin(float x, float y, int planet, float reach,
+			float margin) {
+		float dx = AutoPilot.wrap(level.planets.x[planet] - x, width);
+		float dy = AutoPilot.wrap(level.planets.y[planet] - y, height);
+		float outer = reach + margin;
+		return dx * dx + dy * dy < outer * outer ? 0 : margin;
+	}
+
+	private int starNode(int star) {
+		return 1 + star;
+	}
+
+	private boolean isStarNode(int node) {
+		return node >= 1 && node <= starCount;
+	}
+
+	private int sideNode(int target, int side) {
+		return 1 + starCount + SIDES * target + side;
+	}
+
+	// the game only finds what a taxi touches on its side of the screen's
+	// edges, so a node off the screen can't be used
+	private boolean isOnScreen(int node) {
+		return nodeX[node] >= 0 && nodeX[node] <= width && nodeY[node] >= 0
+				&& nodeY[node] <= height;
+	}
+
+	// targets are numbered with the planets first, then the gas clouds
+	private float targetX(int target) {
+		return target < planetCount ? level.planets.x[target]
+				: level.gasClouds.x[target - planetCount];
+	}
+
+	private float targetY(int target) {
+		return target < planetCount ? level.planets.y[target]
+				: level.gasClouds.y[target - planetCount];
+	}
+
+	private float targetReach(int target) {
+		// a planet is always landed on as the larger destination
+		return target < planetCount ? reach(EntityStore.DESTINATION_SIZE)
+				: reach(EntityStore.GAS_SIZE);
+	}
+
+	/**
+	 * Solves one level file, for main().
+	 *
+	 * @param levelFilename is the name of the level file
+	 * @return whether the level can be won and how, or why it can't be
+	 * solved
+	 */
+	private static String solveFile(String levelFilename) {
+		Level level = new Level(new Random(), levelFilename, true);
+		try {
+			return new LevelSolver(level).solve(DEFAULT_MAX_STATES).toString();
+		} catch (IllegalArgumentException e) {
+			return "can't be solved, " + e.getMessage();
+		}
+	}
+
+	/**
+	 * Solves every level file named on the command line, and every .wst
+	 * file in each folder named, spread across every core, and prints
+	 * whether each one can be won and how.
+	 *
+	 * @param args is the sequence of level files and folders to solve
+	 * @throws IOException when a folder can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: java LevelSolver levelFileOrFolder ...");
+			return;
+		}
+		List<Path> files = LevelValidator.findFiles(args);
+		String[] results = new String[files.size()];
+		long start = System.nanoTime();
+		ForkJoinPool.commonPool().invoke(new SolveTask(files, results, 0,
+				files.size()));
+		double seconds = (System.nanoTime() - start) / 1e9;
+		for (int i = 0; i < results.length; i++) {
+			System.out.println(files.get(i) + ": " + results[i]);
+		}
+		System.err.println(files.size() + " levels in " + seconds + "s on "
+				+ ForkJoinPool.commonPool().getParallelism() + " threads ("
+				+ (int) (files.size() / Math.max(seconds, 1e-9))
+				+ " levels/s)");
+	}
+
+	/**
+	 * A SolveTask solves a range of level files, splitting the range in half
+	 * for other threads to steal until it is a single file.
+	 */
+	private static class SolveTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<Path> files;
+		private String[] results;	// the result of file i at index i
+		private int from;			// index of the first file to solve
+		private int to;				// index after the last file to solve
+
+		private SolveTask(List<Path> files, String[] results, int from,
+				int to) {
+			this.files = files;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				results[from] = solveFile(files.get(from).toString());
+			} else if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SolveTask(files, results, from, middle),
+						new SolveTask(files, results, middle, to));
+			}
+		}
+	}
+
+	/**
+	 * An Edge is one straight path through the level that the taxi can take
+	 * from one node of the graph to another.
+	 */
+	private static class Edge {
+		private byte kind;
+		private int from;			// the node it starts at
+		private int to;				// the node it ends at
+		private int star;			// the warp star clicked, or -1
+		private int planet;			// the planet landed on, or -1
+		private int gas = -1;		// the gas cloud thrusted to, or -1
+		private int beside = -1;	// the planet stopped next to, or -1
+		private float cost;			// thruster fuel burned
+		private long warpPlanets;	// planets hit at warp, at normal size
+		private long warpDestinations;	// ... or at destination size
+		private long thrustPlanets;	// planets hit by thrusters, likewise
+		private long thrustDestinations;
+		private long gasAtWarp;		// gas clouds flown through at warp
+		private long gasByThrust;	// gas clouds flown through by thrusters
+		private float warpLength;	// pixels travelled at warp speed
+		private float startX;		// where the thrusters start, on screen
+		private float startY;
+		private float endX;			// the node they end at, on screen
+		private float endY;
+		private float targetX;		// the planet or gas cloud thrusted to
+		private float targetY;
+
+		private Edge(byte kind, int to, int star, int planet, float cost) {
+			this.kind = kind;
+			this.to = to;
+			this.star = star;
+			this.planet = planet;
+			this.cost = cost;
+		}
+
+		private void addThrustPath(LevelSolver solver, float x1, float y1,
+				float x2, float y2) {
+			long[] masks = new long[3];
+			solver.findObjectsNear(x1, y1, x2, y2, masks);
+			thrustPlanets = masks[0];
+			thrustDestinations = masks[1];
+			gasByThrust = masks[2];
+		}
+
+		/**
+		 * Determines whether this edge can be taken without crashing.
+		 *
+		 * @param destination is the planet that is the current destination
+		 * @param gasUsed holds the gas clouds that are already used up
+		 * @return true when this edge can be taken, otherwise false
+		 */
+		private boolean isUsable(int destination, long gasUsed) {
+			long bit = destination < MAX_OBJECTS ? 1L << destination : 0;
+			if (planet >= 0 && planet != destination) {
+				return false;	// only the destination can be landed on
+			}
+			if (gas >= 0 && (gasUsed & 1L << gas) != 0) {
+				return false;	// the gas cloud it goes to is already used
+			}
+			// any planet crashes the taxi at warp speed
+			if ((warpPlanets & ~bit) != 0 || (warpDestinations & bit) != 0) {
+				return false;
+			}
+			// and every planet but the one being landed on by thrusters
+			if ((thrustPlanets & ~bit) != 0) {
+				return false;
+			}
+			return planet == destination || (thrustDestinations & bit) == 0;
+		}
+
+		/**
+		 * Describes this edge as one step of a route.
+		 *
+		 * @param gasUsed holds the gas clouds that were used up before it
+		 * @return the description, with the gas clouds it collects
+		 */
+		private String describe(long gasUsed) {
+			String target = planet >= 0 ? "land on planet " + planet
+					: "gas cloud " + gas;
+			String step;
+			if (kind == WARP) {
+				step = "warp to star " + star;
+			} else if (kind == NEAR) {
+				step = "thrust next to planet " + beside;
+			} else if (kind == WARP_THRUST) {
+				step = "warp toward star " + star + ", then thrust to "
+						+ target;
+			} else {
+				step = "thrust to " + target;
+			}
+			// the gas cloud thrusted to is already named
+			long collected = (gasAtWarp | gasByThrust) & ~gasUsed
+					& ~(gas >= 0 ? 1L << gas : 0);
+			int count = Long.bitCount(collected);
+			if (count > 0) {
+				step += count == 1 ? " (collecting gas cloud "
+						: " (collecting gas clouds ";
+				for (int i = 0; collected != 0; i++) {
+					int gas = Long.numberOfTrailingZeros(collected);
+					collected &= collected - 1;
+					if (i > 0) {
+						step += collected == 0 ? " and " : ", ";
+					}
+					step += gas;
+				}
+				step += ")";
+			}
+			return step;
+		}
+	}
+
+	/**
+	 * A State is where the search has got to: a node, the next destination,
+	 * and the gas clouds used up, with the route that got there.
+	 */
+	private static class State {
+		private int node;
+		private int destination;
+		private long gasUsed;
+		private float cost;		// fuel burned so far
+		private float estimate;	// cost plus a lower bound on the rest
+		private State previous;
+		private Edge edge;		// the edge from the previous state
+
+		private State(int node, int destination, long gasUsed, float cost,
+				State previous, Edge edge) {
+			this.node = node;
+			this.destination = destination;
+			this.gasUsed = gasUsed;
+			this.cost = cost;
+			this.estimate = cost;
+			this.previous = previous;
+			this.edge = edge;
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof State)) {
+				return false;
+			}
+			State state = (State) other;
+			return node == state.node && destination == state.destination
+					&& gasUsed == state.gasUsed;
+		}
+
+		public int hashCode() {
+			// mixes every bit of gasUsed with the node and destination, since
+			// states at one node mostly differ only by a few gas clouds
+			long hash = gasUsed * 0x9E3779B97F4A7C15L
+					+ ((long) node << 8 | destination);
+			hash *= 0xBF58476D1CE4E5B9L;
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+
+	/**
+	 * A Route is the result of solving a level: whether it can be won, and
+	 * if so the steps of the cheapest way to win it.
+	 */
+	public static class Route {
+		private byte result;
+		private float fuelBurned;
+		private ArrayList<Step> steps = new ArrayList<Step>();
+		private int statesSearched;
+
+		private Route(byte result, State end, int statesSearched,
+				LevelSolver solver) {
+			this.result = result;
+			this.statesSearched = statesSearched;
+			if (end != null) {
+				fuelBurned = end.cost;
+				for (State state = end; state.edge != null;
+						state = state.previous) {
+					steps.add(0, new Step(solver, state.edge, state.previous));
+				}
+			}
+		}
+
+		public byte getResult() {
+			return result;
+		}
+
+		public boolean isWinnable() {
+			return result == SOLVED;
+		}
+
+		public float getFuelBurned() {
+			return fuelBurned;
+		}
+
+		public ArrayList<Step> getSteps() {
+			return steps;
+		}
+
+		public int getStatesSearched() {
+			return statesSearched;
+		}
+
+		public String toString() {
+			if (result == UNWINNABLE) {
+				return "unwinnable (" + statesSearched + " states searched)";
+			} else if (result == GAVE_UP) {
+				return "gave up after " + statesSearched + " states";
+			}
+			return "winnable, burning " + fuelBurned + " fuel: " + steps;
+		}
+	}
+	/**
+	 * A Step is one edge of a route, with what a pilot needs to follow it:
+	 * the warp star to click and how far to warp toward it, and then where
+	 * to thrust to. A Step that thrusts ends on the side of its target, and
+	 * the target is then landed on or collected once the taxi moves any
+	 * closer.
+	 */
+	public static class Step {
+		private String description;
+		private float fromX;
+		private float fromY;
+		private int star;
+		private float warpLength;
+		private boolean isThrusting;
+		private float startX;
+		private float startY;
+		private float endX;
+		private float endY;
+		private float targetX;
+		private float targetY;
+		private int planet;
+		private boolean hasTarget;
+		private float fuel;
+
+		private Step(LevelSolver solver, Edge edge, State before) {
+			description = edge.describe(before.gasUsed);
+			fromX = solver.nodeX[before.node];
+			fromY = solver.nodeY[before.node];
+			star = edge.star;
+			warpLength = edge.warpLength;
+			isThrusting = edge.kind != WARP;
+			startX = edge.startX;
+			startY = edge.startY;
+			endX = edge.endX;
+			endY = edge.endY;
+			targetX = edge.targetX;
+			targetY = edge.targetY;
+			planet = edge.planet;
+			hasTarget = edge.planet >= 0 || edge.gas >= 0;
+			fuel = solver.startFuel + GasCloud.FUEL
+					* Long.bitCount(before.gasUsed) - before.cost;
+		}
+
+		public float getFromX() {
+			return fromX;
+		}
+
+		public float getFromY() {
+			return fromY;
+		}
+
+		/**
+		 * This accessor retrieves the warp star that this step clicks first.
+		 *
+		 * @return the slot of the warp star, or -1 when it only thrusts
+		 */
+		public int getStar() {
+			return star;
+		}
+
+		/**
+		 * This accessor retrieves how far this step travels at warp speed
+		 * after clicking its warp star, before it clicks the next star or
+		 * stops.
+		 *
+		 * @return the distance in pixels
+		 */
+		public float getWarpLength() {
+			return warpLength;
+		}
+
+		/**
+		 * This accessor retrieves whether this step ends by thrusting to a
+		 * planet or gas cloud, instead of warping through its star.
+		 *
+		 * @return true when it thrusts, otherwise false
+		 */
+		public boolean isThrusting() {
+			return isThrusting;
+		}
+
+		public float getStartX() {
+			return startX;
+		}
+
+		public float getStartY() {
+			return startY;
+		}
+
+		public float getEndX() {
+			return endX;
+		}
+
+		public float getEndY() {
+			return endY;
+		}
+
+		public float getTargetX() {
+			return targetX;
+		}
+
+		public float getTargetY() {
+			return targetY;
+		}
+
+		/**
+		 * This accessor retrieves the planet that this step lands on.
+		 *
+		 * @return the slot of the planet, or -1 when it goes to a gas cloud
+		 * or a warp star
+		 */
+		public int getPlanet() {
+			return planet;
+		}
+
+		/**
+		 * This accessor retrieves whether this step ends by landing on a
+		 * planet or collecting a gas cloud, instead of just stopping.
+		 *
+		 * @return true when it has a target, otherwise false
+		 */
+		public boolean hasTarget() {
+			return hasTarget;
+		}
+
+		/**
+		 * This accessor retrieves the fuel that the taxi has when this step
+		 * starts, if every step before it went as planned.
+		 *
+		 * @return the fuel
+		 */
+		public float getFuel() {
+			return fuel;
+		}
+
+		public String toString() {
+			return description;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * The LevelTemplate class is the starting state of a level, as it was
+ * right after the level was read from its file or generated: where the
+ * taxi starts, and every gas cloud, planet and warp star. A template never
+ * changes once it is made, so one template can start any number of levels,
+ * on any number of threads. A level started from a template copies the
+ * template's stores array by array, without reading, parsing or placing
+ * anything (see LevelTemplateCache).
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public final class LevelTemplate {
+
+	// initialized variables, which are never changed after construction
+	private final boolean hasTaxi;
+	private final float taxiX;
+	private final float taxiY;
+	private final EntityStore gasClouds;
+	private final EntityStore planets;
+	private final EntityStore warpStars;
+
+	/**
+	 * Initializes a template holding a copy of a level's starting state.
+	 * The stores are copied, so they can go on changing afterwards.
+	 *
+	 * @param hasTaxi is true when the level has a taxi
+	 * @param taxiX is the horizontal position the taxi starts at
+	 * @param taxiY is the vertical position the taxi starts at
+	 * @param gasClouds is the gas clouds the level starts with
+	 * @param planets is the planets the level starts with
+	 * @param warpStars is the warp stars the level starts with
+	 */
+	public LevelTemplate(boolean hasTaxi, float taxiX, float taxiY,
+			EntityStore gasClouds, EntityStore planets, EntityStore warpStars) {
+		this.hasTaxi = hasTaxi;
+		this.taxiX = taxiX;
+		this.taxiY = taxiY;
+		this.gasClouds = copyOf(gasClouds);
+		this.planets = copyOf(planets);
+		this.warpStars = copyOf(warpStars);
+	}
+
+	/**
+	 * Copies a store into a new store that has no room to spare.
+	 *
+	 * @param store is the store to copy
+	 * @return the copy
+	 */
+	private static EntityStore copyOf(EntityStore store) {
+		EntityStore copy = new EntityStore(store.size());
+		copy.copyFrom(store);
+		return copy;
+	}
+
+	/**
+	 * Replaces the objects in a level's stores with the objects of this
+	 * template.
+	 *
+	 * @param gasClouds is the store that gets this template's gas clouds
+	 * @param planets is the store that gets this template's planets
+	 * @param warpStars is the store that gets this template's warp stars
+	 * @return void
+	 */
+	public void copyInto(EntityStore gasClouds, EntityStore planets,
+			EntityStore warpStars) {
+		gasClouds.copyFrom(this.gasClouds);
+		planets.copyFrom(this.planets);
+		warpStars.copyFrom(this.warpStars);
+	}
+
+	public boolean hasTaxi() {
+		return hasTaxi;
+	}
+
+	public float getTaxiX() {
+		return taxiX;
+	}
+
+	public float getTaxiY() {
+		return taxiY;
+	}
+
+	/**
+	 * This accessor retrieves the number of objects in this template, not
+	 * counting the taxi.
+	 *
+	 * @return the number of gas clouds, planets and warp stars
+	 */
+	public int getObjectCount() {
+		return gasClouds.size() + planets.size() + warpStars.size();
+	}
+}
@@ -0,0 +1,160 @@
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The LevelTemplateCache class remembers the LevelTemplates of the levels
+ * built most recently, so that building the same level again (retrying it,
+ * replaying it, or playing it in a batch) copies its template instead of
+ * reading and parsing the file or placing the objects again. A level file
+ * is remembered by its path along with when it was last changed and its
+ * length, so an edited file is read again, and a random level by its seed,
+ * object count and screen size.
+ * <br/><br/>
+ * The cache holds warpstar.templates templates (64 by default), and forgets
+ * the one used least recently when it is full. Levels on many threads can
+ * use it at once.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelTemplateCache {
+
+	// the most templates remembered at once
+	public static final int CAPACITY =
+			Math.max(1, Integer.getInteger("warpstar.templates", 64));
+
+	// templates in order of use, the least recently used first
+	private static final LinkedHashMap<String, LevelTemplate> templates =
+			new LinkedHashMap<String, LevelTemplate>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(
+						Map.Entry<String, LevelTemplate> eldest) {
+					return size() > CAPACITY;
+				}
+			};
+
+	private static long hits;
+	private static long misses;
+
+	/**
+	 * Finds the key that the current version of a level file is remembered
+	 * by.
+	 *
+	 * @param levelFilename is the name of the level file
+	 * @return the key, or null when there is no such file
+	 */
+	public static String fileKey(String levelFilename) {
+		File file = new File(levelFilename);
+		if (!file.isFile()) {
+			return null;
+		}
+		return "file:" + file.getAbsolutePath() + "@" + file.lastModified()
+				+ "/" + file.length();
+	}
+
+	/**
+	 * Finds the key that a random level is remembered by.
+	 *
+	 * @param seed is the seed of the Random the level is generated with
+	 * @param objectCount is the number of each type of object in the level
+	 * @param width is the width of the screen the level is generated for
+	 * @param height is the height of the screen the level is generated for
+	 * @return the key
+	 */
+	public static String seedKey(long seed, int objectCount, int width,
+			int height) {
+		return "seed:" + seed + "/" + objectCount + "/" + width + "x" + height;
+	}
+
+	/**
+	 * Finds a template that is remembered, which then becomes the one used
+	 * most recently.
+	 *
+	 * @param key is the key of the template, from fileKey() or seedKey()
+	 * @return the template, or null when it isn't remembered
+	 */
+	public static synchronized LevelTemplate get(String key) {
+		LevelTemplate template = templates.get(key);
+		if (template == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return template;
+	}
+
+	/**
+	 * Determines whether a template is remembered, without using it.
+	 *
+	 * @param key is the key of the template, from fileKey() or seedKey()
+	 * @return true when the template is remembered, otherwise false
+	 */
+	public static synchronized boolean contains(String key) {
+		return templates.containsKey(key);
+	}
+
+	/**
+	 * Remembers a template, forgetting the least recently used one when the
+	 * cache is full.
+	 *
+	 * @param key is the key of the template, from fileKey() or seedKey()
+	 * @param template is the template to remember
+	 * @return void
+	 */
+	public static synchronized void put(String key, LevelTemplate template) {
+		templates.put(key, template);
+	}
+
+	/**
+	 * Finds the template of a random level, generating the level the first
+	 * time it is asked for. The level is generated outside the lock, so
+	 * other threads are never kept waiting for it.
+	 *
+	 * @param seed is the seed of the Random the level is generated with
+	 * @param objectCount is the number of each type of object in the level
+	 * @param width is the width of the screen the level is generated for
+	 * @param height is the height of the screen the level is generated for
+	 * @return the template of the level
+	 */
+	public static LevelTemplate forSeed(long seed, int objectCount, int width,
+			int height) {
+		String key = seedKey(seed, objectCount, width, height);
+		LevelTemplate template = get(key);
+		if (template == null) {
+			template = new Level(new Random(seed), null, objectCount, width,
+					height).createTemplate();
+			put(key, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Forgets every template.
+	 *
+	 * @return void
+	 */
+	public static synchronized void clear() {
+		templates.clear();
+	}
+
+	/**
+	 * This accessor retrieves the number of templates remembered.
+	 *
+	 * @return the number of templates
+	 */
+	public static synchronized int size() {
+		return templates.size();
+	}
+
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	public static synchronized long getMisses() {
+		return misses;
+	}
+}
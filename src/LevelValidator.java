@@ -0,0 +1,399 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * The LevelValidator class checks a whole corpus of level files at once,
+ * spread across every core with a fork/join pool, instead of finding their
+ * problems one at a time by playing them. Each file named on the command
+ * line is checked, and so is every .wst file in each folder named, however
+ * deeply it is nested. A file has an error when:
+ * <tt><ul>
+ * <li>it can't be read, or doesn't follow the level file format</li>
+ * <li>it has no TAXI, or no PLANET</li>
+ * <li>an object is off the screen</li>
+ * <li>two planets overlap, which random levels never allow (see
+ * PlanetPlacer)</li>
+ * </ul></tt>
+ * and a warning when it has more than one TAXI, since only the last one is
+ * used. Every problem is printed like a compiler message, with the line of
+ * the object it is about:
+ * <pre>    levels/level09.wst:12: error: PLANET overlaps the PLANET on line 4
+ * </pre>
+ * followed by the stats of the whole corpus on System.err. The exit status
+ * is 1 when any file has an error.
+ *
+ * Usage: java LevelValidator [-size WIDTHxHEIGHT] fileOrFolder ...
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelValidator {
+
+	// the files checked in folders
+	public static final String EXTENSION = ".wst";
+	// files that each fork/join task checks without splitting further
+	private static final int FILES_PER_TASK = 16;
+
+	private static final String[] TYPE_NAMES = {"TAXI", "GAS", "PLANET",
+			"WARP_STAR"};
+
+	// initialized variables, with the results of file i at index i
+	private List<Path> files;
+	private int width;
+	private int height;
+	private String[] problems;		// the messages printed for each file
+	private int[] errors;
+	private int[] warnings;
+	private int[][] counts;			// objects of each type, by type
+
+	/**
+	 * Initializes a validator for a list of files that haven't been checked
+	 * yet.
+	 *
+	 * @param files is the level files to check
+	 * @param width is the width of the screen that objects must be on
+	 * @param height is the height of the screen that objects must be on
+	 */
+	public LevelValidator(List<Path> files, int width, int height) {
+		this.files = files;
+		this.width = width;
+		this.height = height;
+		problems = new String[files.size()];
+		errors = new int[files.size()];
+		warnings = new int[files.size()];
+		counts = new int[files.size()][TYPE_NAMES.length];
+	}
+
+	/**
+	 * Finds every level file named, looking through the folders named for
+	 * the files ending in EXTENSION. The files of each folder are sorted, so
+	 * the report always lists them in the same order.
+	 *
+	 * @param names is the names of files and folders
+	 * @return the level files
+	 * @throws IOException when a folder can't be read
+	 */
+	public static List<Path> findFiles(String[] names) throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		for (String name : names) {
+			Path path = Paths.get(name);
+			if (!Files.isDirectory(path)) {
+				files.add(path);
+				continue;
+			}
+			List<Path> found = new ArrayList<Path>();
+			try (Stream<Path> tree = Files.walk(path)) {
+				Iterator<Path> walked = tree.iterator();
+				while (walked.hasNext()) {
+					Path file = walked.next();
+					if (file.toString().endsWith(EXTENSION)
+							&& Files.isRegularFile(file)) {
+						found.add(file);
+					}
+				}
+			}
+			Collections.sort(found);
+			files.addAll(found);
+		}
+		return files;
+	}
+
+	/**
+	 * Checks every file of this validator, using all of the pool's threads.
+	 *
+	 * @param pool is the pool that the files are checked in
+	 * @return void
+	 */
+	public void run(ForkJoinPool pool) {
+		pool.invoke(new ValidateTask(0, files.size()));
+	}
+
+	/**
+	 * Checks a single file and records its problems. Each file only uses
+	 * its own objects and the parser passed in, so this can run on many
+	 * threads at once.
+	 *
+	 * @param index is the index of the file in this validator
+	 * @param parser is the parser to read the file with
+	 * @return void
+	 */
+	private void validate(int index, LevelParser parser) {
+		String filename = files.get(index).toString();
+		FileCheck check = new FileCheck(filename, parser);
+		try {
+			parser.parse(filename, check);
+			check.finish();
+		} catch (LevelFormatException e) {
+			check.error(e.getLine(), e.getColumn(), e.getReason());
+		} catch (IOException e) {
+			check.error(0, "can't be read: " + e.getMessage());
+		}
+		problems[index] = check.messages.toString();
+		errors[index] = check.errors;
+		warnings[index] = check.warnings;
+		counts[index] = check.counts;
+	}
+
+	/**
+	 * Prints the problems of every file, followed by the stats of the whole
+	 * corpus.
+	 *
+	 * @param seconds is how long the files took to check
+	 * @return void
+	 */
+	public void print(double seconds) {
+		StringBuilder text = new StringBuilder();
+		int badFiles = 0;
+		long totalErrors = 0;
+		long totalWarnings = 0;
+		long[] totals = new long[TYPE_NAMES.length];
+		int fewestPlanets = Integer.MAX_VALUE;
+		int mostPlanets = 0;
+		for (int i = 0; i < files.size(); i++) {
+			text.append(problems[i]);
+			if (errors[i] > 0) {
+				badFiles++;
+			}
+			totalErrors += errors[i];
+			totalWarnings += warnings[i];
+			for (int type = 0; type < totals.length; type++) {
+				totals[type] += counts[i][type];
+			}
+			fewestPlanets = Math.min(fewestPlanets,
+					counts[i][EntityStore.PLANET]);
+			mostPlanets = Math.max(mostPlanets, counts[i][EntityStore.PLANET]);
+		}
+		System.out.print(text);
+
+		int fileCount = Math.max(1, files.size());
+		System.err.println(files.size() + " files: "
+				+ (files.size() - badFiles) + " valid, " + badFiles
+				+ " with errors (" + totalErrors + " errors, " + totalWarnings
+				+ " warnings)");
+		for (int type = 0; type < totals.length; type++) {
+			System.err.println(TYPE_NAMES[type] + ": " + totals[type]
+					+ " (" + (double) totals[type] / fileCount + " per file)");
+		}
+		System.err.println("planets per file: "
+				+ (files.isEmpty() ? 0 : fewestPlanets) + " to " + mostPlanets);
+		System.err.println(files.size() + " files in " + seconds + "s on "
+				+ ForkJoinPool.commonPool().getParallelism() + " threads ("
+				+ (int) (files.size() / Math.max(seconds, 1e-9))
+				+ " files/s)");
+	}
+
+	/**
+	 * This accessor retrieves whether any file that was checked has an
+	 * error.
+	 *
+	 * @return true when at least one file has an error, otherwise false
+	 */
+	public boolean hasErrors() {
+		for (int i = 0; i < errors.length; i++) {
+			if (errors[i] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks the level files and folders named on the command line, and
+	 * prints their problems and stats.
+	 *
+	 * @param args is optionally -size and the screen size, like 800x600,
+	 * then the names of the files and folders to check
+	 * @throws IOException when a folder can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		int width = Level.HEADLESS_WIDTH;
+		int height = Level.HEADLESS_HEIGHT;
+		int first = 0;
+		if (args.length > 1 && args[0].equals("-size")) {
+			String[] size = args[1].split("x");
+			width = Integer.parseInt(size[0]);
+			height = Integer.parseInt(size[1]);
+			first = 2;
+		}
+		if (args.length <= first) {
+			System.err.println("Usage: java LevelValidator "
+					+ "[-size WIDTHxHEIGHT] fileOrFolder ...");
+			return;
+		}
+		String[] names = new String[args.length - first];
+		System.arraycopy(args, first, names, 0, names.length);
+
+		long start = System.nanoTime();
+		LevelValidator validator = new LevelValidator(findFiles(names), width,
+				height);
+		validator.run(ForkJoinPool.commonPool());
+		double seconds = (System.nanoTime() - start) / 1e9;
+		validator.print(seconds);
+		if (validator.hasErrors()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A FileCheck receives the objects of one file from the parser, and
+	 * collects the problems it finds with them.
+	 */
+	private class FileCheck implements LevelParser.Handler {
+
+		private String filename;
+		private LevelParser parser;
+		private StringBuilder messages = new StringBuilder();
+		private int errors;
+		private int warnings;
+		private int[] counts = new int[TYPE_NAMES.length];
+		private int taxiLine;
+		private EntityStore planets = new EntityStore();
+		private IntList planetLines = new IntList();
+		private SpatialGrid planetGrid = new SpatialGrid(width, height,
+				PlanetPlacer.REACH);
+		private IntList nearby = new IntList();
+
+		private FileCheck(String filename, LevelParser parser) {
+			this.filename = filename;
+			this.parser = parser;
+		}
+
+		public void handleObject(byte type, float x, float y) {
+			int line = parser.getLine();
+			counts[type]++;
+			// written so that NaN is off the screen too
+			if (!(x >= 0 && x <= width && y >= 0 && y <= height)) {
+				error(line, TYPE_NAMES[type] + " at " + x + ", " + y
+						+ " is off the " + width + "x" + height + " screen");
+			}
+			if (type == EntityStore.TAXI) {
+				if (taxiLine > 0) {
+					warning(line, "TAXI replaces the TAXI on line " + taxiLine);
+				}
+				taxiLine = line;
+			} else if (type == EntityStore.PLANET) {
+				checkOverlap(line, x, y);
+				int slot = Planet.add(planets, x, y);
+				planetGrid.add(slot, x, y);
+				planetLines.add(line);
+			}
+		}
+
+		/**
+		 * Reports the first planet read before that a new planet overlaps.
+		 *
+		 * @param line is the line of the new planet
+		 * @param x is the horizontal position of the new planet
+		 * @param y is the vertical position of the new planet
+		 * @return void
+		 */
+		private void checkOverlap(int line, float x, float y) {
+			nearby.clear();
+			planetGrid.query(x, y, PlanetPlacer.REACH, nearby);
+			nearby.sort();
+			for (int i = 0; i < nearby.size(); i++) {
+				int slot = nearby.get(i);
+				float dx = x - planets.x[slot];
+				float dy = y - planets.y[slot];
+				if (dx * dx + dy * dy
+						<= PlanetPlacer.REACH * PlanetPlacer.REACH) {
+					error(line, "PLANET overlaps the PLANET on line "
+							+ planetLines.get(slot));
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Checks what a file needs once all of its objects have been read.
+		 *
+		 * @return void
+		 */
+		private void finish() {
+			if (counts[EntityStore.TAXI] == 0) {
+				error(0, "no TAXI");
+			}
+			if (counts[EntityStore.PLANET] == 0) {
+				error(0, "no PLANET, so there are no fares");
+			}
+		}
+
+		private void error(int line, String message) {
+			error(line, 0, message);
+		}
+
+		private void error(int line, int column, String message) {
+			errors++;
+			report(line, column, "error", message);
+		}
+
+		private void warning(int line, String message) {
+			warnings++;
+			report(line, 0, "warning", message);
+		}
+
+		/**
+		 * Adds one message about this file to its report.
+		 *
+		 * @param line is the line the problem is on, or 0 for the whole file
+		 * @param column is the column the problem is at, or 0 for the whole
+		 * line
+		 * @param kind is "error" or "warning"
+		 * @param message describes the problem
+		 * @return void
+		 */
+		private void report(int line, int column, String kind,
+				String message) {
+			messages.append(filename);
+			if (line > 0) {
+				messages.append(':').append(line);
+			}
+			if (column > 0) {
+				messages.append(':').append(column);
+			}
+			messages.append(": ").append(kind).append(": ").append(message)
+					.append('\n');
+		}
+	}
+
+	/**
+	 * A ValidateTask checks a range of the validator's files with one
+	 * parser, splitting the range in half for other threads to steal until
+	 * it is small.
+	 */
+	private class ValidateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int from;	// index of the first file to check
+		private int to;		// index after the last file to check
+
+		private ValidateTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= FILES_PER_TASK) {
+				LevelParser parser = new LevelParser();
+				for (int i = from; i < to; i++) {
+					validate(i, parser);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ValidateTask(from, middle),
+						new ValidateTask(middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The LevelWatcher class watches the file of the level being played, so that
+ * a level designer sees their changes without restarting the game. Each
+ * time the file is saved it is read again on the watcher's thread and
+ * compared with the version before, and the LevelDiff is queued for the
+ * level to apply on the game thread, between two ticks. A version with a
+ * mistake in it is reported and skipped, so the level keeps the last good
+ * version until the file is fixed.
+ * <br/><br/>
+ * Files are only watched when Java is started with
+ * -Dwarpstar.hotreload=true, and only for levels played in the GameEngine
+ * window.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class LevelWatcher implements Runnable {
+
+	// the system property that turns watching on
+	public static final String PROPERTY = "warpstar.hotreload";
+
+	// milliseconds to wait after a change for the editor to finish saving
+	private static final long SETTLE_TIME = 50;
+
+	// initialized variables
+	private String levelFilename;
+	private Path file;
+	private WatchService watcher;
+	private BinaryLevel version;	// the last good version of the file
+	private ConcurrentLinkedQueue<LevelDiff> diffs =
+			new ConcurrentLinkedQueue<LevelDiff>();
+
+	/**
+	 * Initializes a watcher for a level file, remembering the file as it is
+	 * now to compare later versions with.
+	 *
+	 * @param levelFilename is the name of the level file
+	 * @throws IOException when the file or its folder can't be read
+	 */
+	public LevelWatcher(String levelFilename) throws IOException {
+		this.levelFilename = levelFilename;
+		file = Paths.get(levelFilename).toAbsolutePath();
+		version = BinaryLevel.load(levelFilename);
+		watcher = FileSystems.getDefault().newWatchService();
+		// editors often save by replacing the file, which creates it again
+		file.getParent().register(watcher,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	/**
+	 * Starts watching a level file on a new thread. Any problem is printed
+	 * instead of thrown, since the game can be played without it.
+	 *
+	 * @param levelFilename is the name of the level file
+	 * @return the watcher, or null when the file can't be watched
+	 */
+	public static LevelWatcher start(String levelFilename) {
+		try {
+			LevelWatcher watcher = new LevelWatcher(levelFilename);
+			Thread thread = new Thread(watcher, "LevelWatcher " + levelFilename);
+			thread.setDaemon(true);
+			thread.start();
+			return watcher;
+		} catch (IOException e) {
+			System.err.println(levelFilename + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Waits for the level file to change, and queues a diff each time it
+	 * does, until this watcher is closed.
+	 *
+	 * @return void
+	 */
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				boolean isChanged = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					Object changed = event.context();
+					isChanged |= changed instanceof Path
+							&& file.getFileName().equals(changed);
+				}
+				key.reset();
+				if (isChanged) {
+					Thread.sleep(SETTLE_TIME);
+					reload();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed by the level
+		} catch (InterruptedException e) {
+			// nothing left to watch
+		}
+	}
+
+	/**
+	 * Reads the level file again, and queues the differences from the last
+	 * good version.
+	 *
+	 * @return void
+	 */
+	private void reload() {
+		BinaryLevel next;
+		try {
+			next = BinaryLevel.load(levelFilename);
+		} catch (IOException e) {
+			System.err.println(levelFilename + ": " + e.getMessage()
+					+ " (keeping the last good version)");
+			return;
+		}
+		LevelDiff diff = LevelDiff.compute(version, next);
+		version = next;
+		if (diff.size() > 0) {
+			System.err.println(levelFilename + ": " + diff);
+			diffs.add(diff);
+		}
+	}
+
+	/**
+	 * Takes the oldest change to the file that hasn't been applied yet.
+	 *
+	 * @return the diff, or null when there is none
+	 */
+	public LevelDiff poll() {
+		return diffs.poll();
+	}
+
+	/**
+	 * Stops watching the file.
+	 *
+	 * @return void
+	 */
+	public void close() {
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			System.err.println("LevelWatcher: " + e.getMessage());
+		}
+	}
+}
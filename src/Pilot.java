@@ -0,0 +1,18 @@
+/**
+ * A Pilot steers the taxi of a Level instead of the player, by choosing the
+ * controls the level uses for each tick. Pilots let levels be played
+ * headless, without anyone at the keyboard.
+ *
+ * @author Susie C. and Krishna P.
+ */
+public interface Pilot {
+
+	/**
+	 * Called before every tick of a level that this pilot steers, to choose
+	 * the controls for that tick.
+	 *
+	 * @param level is the level being steered
+	 * @return the keys and mouse to use for the tick
+	 */
+	InputSnapshot steer(Level level);
+}
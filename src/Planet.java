@@ -1,121 +1,153 @@
-import java.util.ArrayList;
-import java.util.Random;
 /**
  * The Planet class has its own methods which are called in the level
- * class. These methods include the constructor which constructs the graphic
- * image of the Planet and implements its abilities in the game.
- * 
- * Bugs: (None that I'm aware of!) 
- * 
- * @author Susie C. and Krishna P. 
+ * class. The planets themselves are kept in an EntityStore, and these
+ * methods add them to a store and implement their abilities in the game.
+ * A planet's slot in its store is also its place in the order of fares.
+ * Planets at random positions are added by the PlanetPlacer class.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
  */
 public class Planet {
 
-	// initializes variables
-	private Graphic graphic;
-	private boolean isDestination;
-
 	/**
-	 * Initialize this planet to be displayed at the specified position.
+	 * Adds a planet to be displayed at the specified position.
 	 *
+	 * @param planets is the store that the new planet is added to
 	 * @param x is the horizontal coordinate of this planet's initial position
 	 * @param y is the vertical coordinate of this planet's initial position
+	 * @return the slot of the new planet in the store
 	 */
-	public Planet(float x, float y) {
-		graphic = new Graphic("PLANET");
-		graphic.setPosition(x, y);
+	public static int add(EntityStore planets, float x, float y) {
+		return planets.add(EntityStore.PLANET, x, y, 0);
 	}
 
 	/**
-	 * Initialized this planet to be displayed at a randomly chose position, 
-	 * and ensures that this randomly chosen position does not overlap with 
-	 * the position of a previously created Planet.
+	 * This method detects and handles collisions between taxis and planets
+	 * that result in either crashing: when traveling at warp speed, or in
+	 * reaching a destination and progressing through the current level.
 	 *
-	 * @param rng is used to generate random positions - using nextFloat()
-	 * @param planets is the collection of planets that this new planet 
-	 * cannot be overlapping (while it is, a new random position must 
-	 * be generated)
+	 * @param planets is the store that holds the planet
+	 * @param slot is the slot of the planet in the store
+	 * @param taxi is the taxi that might be colliding with this planet
+	 * @return true when the taxi safely lands on this planet and this planet
+	 * is marked as the current destination, otherwise it returns false
 	 */
-	public Planet(Random rng, ArrayList<Planet> planets) {
-		graphic = new Graphic("PLANET");
-
-		// if true, given position coordinates will be randomized
-		while(true){
-
-			float x = rng.nextFloat() * GameEngine.getWidth();
-			float y = rng.nextFloat() * GameEngine.getHeight();
-			graphic.setPosition(x, y);
-
-			boolean overlapped = false;	// initialize boolean variable to false
-			// check all possible planet coordinates for a collision in game
-			for (int i=0; i <planets.size(); i++) {
-				if (graphic.isCollidingWith(planets.get(i).graphic)) {
-					overlapped = true;
-				}
-			}
-			// if the randomized planet is not overlapping previously generated
-			// planet, new planet position will be set to those coordinates
-			if(!overlapped){
-				graphic.setPosition(x, y);
-				break;
-			}
-
-		}
+	public static boolean handleLanding(EntityStore planets, int slot,
+			Taxi taxi) {
+		return handleLanding(planets, slot, taxi,
+				planets.hasFlag(slot, EntityStore.DESTINATION));
 	}
 
 	/**
-	 * This method detects and handles collisions between taxis and planets 
-	 * that result in either crashing: when traveling at warp speed, or in 
-	 * reaching a destination and progressing through the current level.
+	 * This method detects and handles collisions between a taxi and a
+	 * planet like the method above, for a taxi whose destination isn't the
+	 * one marked in the store, like a taxi of a Fleet.
 	 *
+	 * @param planets is the store that holds the planet
+	 * @param slot is the slot of the planet in the store
 	 * @param taxi is the taxi that might be colliding with this planet
+	 * @param isDestination is true when this planet is the taxi's
+	 * destination, which also makes it larger
 	 * @return true when the taxi safely lands on this planet and this planet
-	 * is marked as the current destination, otherwise it returns false
+	 * is the taxi's destination, otherwise it returns false
 	 */
-	public boolean handleLanding(Taxi taxi) {
-		if (taxi.checkCollision(this.graphic)) {
-			if(taxi.isTravellingAtWarp()) {
-				taxi.crash();	// calls the method crash from the taxi class
-				return false;
-			}
-			else if (this.isDestination) {
-				return true;
-			} else {
-				taxi.crash();	// calls the method crash from the taxi class
-				return false;
-			}
+	public static boolean handleLanding(EntityStore planets, int slot,
+			Taxi taxi, boolean isDestination) {
+		float size = isDestination ? EntityStore.DESTINATION_SIZE
+				: EntityStore.PLANET_SIZE;
+		if (taxi.checkCollision(planets.x[slot], planets.y[slot], size)) {
+			return handleContact(taxi, isDestination);
 		}
 		return false;
 	}
 
 	/**
-	 * This method set the current planet to either be the current 
-	 * destination or not, and updates the appearance of it's 
-	 * graphic accordingly
+	 * This method handles a taxi that has touched a planet, which it does
+	 * by crashing at warp speed or into any planet but its destination, or
+	 * otherwise by landing.
 	 *
-	 * @param isDestination - is true when this planet is being 
-	 * marked as the current destination, and false when it is 
-	 * being unmarked or returned to its status as a normal planet
-	 * @return void
+	 * @param taxi is the taxi touching the planet
+	 * @param isDestination is true when this planet is the taxi's
+	 * destination
+	 * @return true when the taxi safely lands on the planet, otherwise false
 	 */
-	public void setDestination(boolean isDestination) {
-		this.isDestination = isDestination;
-		if (isDestination) {
-			graphic.setAppearance("DESTINATION");
+	public static boolean handleContact(Taxi taxi, boolean isDestination) {
+		if(taxi.isTravellingAtWarp()) {
+			taxi.crash();	// calls the method crash from the taxi class
+			return false;
+		}
+		else if (isDestination) {
+			return true;
 		} else {
-			graphic.setAppearance("PLANET");
+			taxi.crash();	// calls the method crash from the taxi class
+			return false;
+		}
+	}
+
+	/**
+	 * This method stops a taxi at the first planet that its last update ran
+	 * into, so that a fast taxi can't fly through a planet. When the taxi
+	 * ended its update on the planet it touched first, it is left where it
+	 * is, just like a taxi that was checked for collisions after moving.
+	 *
+	 * @param planets is the store of planets
+	 * @param grid holds the slot of every planet by its position
+	 * @param taxi is the taxi that just moved
+	 * @param destination is the slot of the taxi's destination planet
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @param nearby is a list to reuse for the planets near the taxi's path
+	 * @return the slot of the planet the taxi was stopped at, which the
+	 * taxi is touching but might not be colliding with, or -1 when it
+	 * wasn't stopped
+	 */
+	public static int stopAtFirstContact(EntityStore planets, SpatialGrid grid,
+			Taxi taxi, int destination, int width, int height, IntList nearby) {
+		nearby.clear();
+		taxi.queryPath(grid, EntityStore.DESTINATION_SIZE, nearby);
+		int first = -1;
+		float firstContact = 2;
+		boolean isOnFirst = false;
+		for (int j = 0; j < nearby.size(); j++) {
+			int slot = nearby.get(j);
+			float size = slot == destination ? EntityStore.DESTINATION_SIZE
+					: EntityStore.PLANET_SIZE;
+			float contact = taxi.findContact(planets.x[slot], planets.y[slot],
+					size, width, height);
+			boolean isOn = taxi.checkCollision(planets.x[slot], planets.y[slot],
+					size);
+			if (isOn && contact < 0) {
+				contact = 1;
+			}
+			if (contact >= 0 && contact < firstContact) {
+				first = slot;
+				firstContact = contact;
+				isOnFirst = isOn;
+			}
+		}
+		if (first < 0 || isOnFirst) {
+			return -1;
 		}
+		taxi.stopAt(firstContact, width, height);
+		return first;
 	}
 
 	/**
-	 * This method simply draws the current planet at it's current position.
+	 * This method set a planet to either be the current destination or
+	 * not, which also changes how it is drawn and its size
 	 *
-	 * @param time is the number of milliseconds that have elapsed since 
-	 * the last update
+	 * @param planets is the store that holds the planet
+	 * @param slot is the slot of the planet in the store
+	 * @param isDestination - is true when this planet is being
+	 * marked as the current destination, and false when it is
+	 * being unmarked or returned to its status as a normal planet
 	 * @return void
 	 */
-	public void update(int time) {
-		graphic.draw();
+	public static void setDestination(EntityStore planets, int slot,
+			boolean isDestination) {
+		planets.setFlag(slot, EntityStore.DESTINATION, isDestination);
 	}
 
 }
@@ -0,0 +1,131 @@
+import java.util.Random;
+
+/**
+ * The PlanetPlacer class adds planets at random positions that do not
+ * overlap any planet that was placed before. Like the original Planet
+ * constructor it keeps picking random positions until one is free, but
+ * each position is only checked against the planets in nearby grid cells,
+ * and it gives up after a limited number of tries instead of looping
+ * forever once the screen is full.
+ * <br/><br/>
+ * Positions are picked with rng.nextFloat() in the same order as before, so
+ * a given seed still produces the same planets.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class PlanetPlacer {
+
+	// how many random positions are tried for each planet before giving up
+	public static final int DEFAULT_ATTEMPTS = 100;
+
+	// the distance two planets' centers must be apart to not overlap
+	static final float REACH = (EntityStore.PLANET_SIZE + Math.max(
+			EntityStore.PLANET_SIZE, EntityStore.DESTINATION_SIZE)) / 2;
+
+	// initialized variables
+	private Random rng;
+	private EntityStore planets;
+	private int width;
+	private int height;
+	private int attempts;
+	private SpatialGrid grid;
+	private IntList nearby = new IntList();
+	private boolean isFull;
+
+	/**
+	 * Initializes a placer that adds planets to the specified store, without
+	 * overlapping any of the planets that are already in it.
+	 *
+	 * @param rng is used to generate random positions - using nextFloat()
+	 * @param planets is the store of planets that new planets cannot be
+	 * overlapping, and that they are added to
+	 * @param width is the width of the screen that planets are placed on
+	 * @param height is the height of the screen that planets are placed on
+	 * @param attempts is the number of random positions tried for each
+	 * planet before place() gives up
+	 */
+	public PlanetPlacer(Random rng, EntityStore planets, int width,
+			int height, int attempts) {
+		this.rng = rng;
+		this.planets = planets;
+		this.width = width;
+		this.height = height;
+		this.attempts = attempts;
+		grid = new SpatialGrid(width, height, REACH);
+		for (int i = 0; i < planets.size(); i++) {
+			grid.add(i, planets.x[i], planets.y[i]);
+		}
+	}
+
+	/**
+	 * Adds one planet at a random position that does not overlap any other
+	 * planet in the store.
+	 *
+	 * @return the slot of the new planet in the store, or -1 when no free
+	 * position was found within the attempt budget
+	 */
+	public int place() {
+		for (int attempt = 0; attempt < attempts; attempt++) {
+			float x = rng.nextFloat() * width;
+			float y = rng.nextFloat() * height;
+			if (!isOverlapping(x, y)) {
+				int slot = Planet.add(planets, x, y);
+				grid.add(slot, x, y);
+				return slot;
+			}
+		}
+		isFull = true;
+		return -1;
+	}
+
+	/**
+	 * Adds up to the specified number of planets, stopping early once a
+	 * planet could not be placed.
+	 *
+	 * @param count is the number of planets to add
+	 * @return the number of planets that were actually added
+	 */
+	public int place(int count) {
+		for (int i = 0; i < count; i++) {
+			if (place() < 0) {
+				return i;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * This accessor retrieves whether this placer has ever run out of
+	 * attempts, which means the screen is (very nearly) full of planets.
+	 *
+	 * @return true after place() has failed, otherwise false
+	 */
+	public boolean isFull() {
+		return isFull;
+	}
+
+	/**
+	 * Determines whether a new planet at the specified position would
+	 * overlap any of the planets already in the store.
+	 *
+	 * @param x is the horizontal position of the new planet
+	 * @param y is the vertical position of the new planet
+	 * @return true when it would overlap another planet, otherwise false
+	 */
+	private boolean isOverlapping(float x, float y) {
+		nearby.clear();
+		grid.query(x, y, REACH, nearby);
+		for (int i = 0; i < nearby.size(); i++) {
+			int slot = nearby.get(i);
+			float dx = x - planets.x[slot];
+			float dy = y - planets.y[slot];
+			float radius = (EntityStore.PLANET_SIZE + planets.sizeOf(slot)) / 2;
+			if (dx * dx + dy * dy <= radius * radius) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * The RenderQueue class collects everything a level draws in one frame and
+ * then draws it all at once. Objects that are completely outside the
+ * window, however they are turned, are skipped when they are added. The
+ * rest are sorted by appearance with a counting sort (which keeps the order
+ * they were added in within each appearance), so that every object with
+ * the same image is drawn back to back with the same shared Graphic. The
+ * queue keeps its arrays from frame to frame, so a frame only allocates
+ * when it draws more than any frame before it.
+ * <br/><br/>
+ * The number of objects added, skipped and drawn, and the number of
+ * batches, are kept for the last frame drawn.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class RenderQueue {
+
+	// appearances, in the order that their batches are drawn
+	public static final int TAXI = 0;
+	public static final int EXPLOSION = 1;
+	public static final int GAS = 2;
+	public static final int WARP_STAR = 3;
+	public static final int PLANET = 4;
+	public static final int DESTINATION = 5;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// initialized variables, with the draw command i in x[i], y[i], ...
+	private float[] x = new float[DEFAULT_CAPACITY];
+	private float[] y = new float[DEFAULT_CAPACITY];
+	private float[] direction = new float[DEFAULT_CAPACITY];
+	private byte[] appearance = new byte[DEFAULT_CAPACITY];
+	private int[] order = new int[DEFAULT_CAPACITY];	// sorted commands
+	private int[] starts = new int[Appearance.COUNT + 1];
+	private int size;
+	private float width;		// size of the window being drawn in
+	private float height;
+
+	// stats of the last frame
+	private int added;
+	private int skipped;
+	private int batches;
+
+	/**
+	 * Starts collecting the draw commands of a new frame.
+	 *
+	 * @param width is the width of the window, like GameEngine.getWidth()
+	 * @param height is the height of the window, like GameEngine.getHeight()
+	 * @return void
+	 */
+	public void begin(float width, float height) {
+		this.width = width;
+		this.height = height;
+		size = 0;
+		added = 0;
+		skipped = 0;
+		batches = 0;
+	}
+
+	/**
+	 * Adds an object to draw this frame, unless no part of it is inside the
+	 * window.
+	 *
+	 * @param appearance is the appearance of the object, like GAS
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 * @param direction is the orientation of the object, measured like
+	 * Graphic.getDirection()
+	 * @return void
+	 */
+	public void add(int appearance, float x, float y, float direction) {
+		added++;
+		// the image's corners reach past its collision size when turned
+		float radius = Appearance.get(appearance).getDrawRadius();
+		if (x + radius < 0 || y + radius < 0 || x - radius > width
+				|| y - radius > height) {
+			skipped++;
+			return;
+		}
+		if (size == this.x.length) {
+			grow(size * 2);
+		}
+		this.x[size] = x;
+		this.y[size] = y;
+		this.direction[size] = direction;
+		this.appearance[size] = (byte) appearance;
+		size++;
+	}
+
+	/**
+	 * Draws every object added since begin(), one batch per appearance.
+	 * This must only be called while the GameEngine is running.
+	 *
+	 * @return void
+	 */
+	public void flush() {
+		// counts the objects of each appearance, then turns the counts into
+		// where each appearance starts in the order
+		Arrays.fill(starts, 0);
+		for (int i = 0; i < size; i++) {
+			starts[appearance[i] + 1]++;
+		}
+		for (int i = 1; i < starts.length; i++) {
+			starts[i] += starts[i - 1];
+		}
+		for (int i = 0; i < size; i++) {
+			order[starts[appearance[i]]++] = i;
+		}
+		// starts[a] is now where appearance a ends, which is where a + 1
+		// starts
+		int from = 0;
+		for (int a = 0; a < Appearance.COUNT; a++) {
+			int to = starts[a];
+			if (to > from) {
+				batches++;
+				Graphic graphic = Appearance.get(a).getGraphic();
+				for (int j = from; j < to; j++) {
+					int i = order[j];
+					graphic.setPosition(x[i], y[i]);
+					graphic.setDirection(direction[i]);
+					graphic.draw();
+				}
+			}
+			from = to;
+		}
+	}
+
+	/**
+	 * This accessor retrieves the number of objects added in the last frame.
+	 *
+	 * @return the number of objects added, including skipped ones
+	 */
+	public int getAdded() {
+		return added;
+	}
+
+	/**
+	 * This accessor retrieves the number of objects skipped in the last
+	 * frame because they were outside the window.
+	 *
+	 * @return the number of objects skipped
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * This accessor retrieves the number of objects drawn in the last frame.
+	 *
+	 * @return the number of objects drawn
+	 */
+	public int getDrawn() {
+		return size;
+	}
+
+	/**
+	 * This accessor retrieves the number of batches drawn in the last frame,
+	 * which is the number of different appearances drawn.
+	 *
+	 * @return the number of batches
+	 */
+	public int getBatches() {
+		return batches;
+	}
+
+	/**
+	 * Replaces the arrays of this queue with larger copies.
+	 *
+	 * @param capacity is the new number of objects to make room for
+	 * @return void
+	 */
+	private void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		direction = Arrays.copyOf(direction, capacity);
+		appearance = Arrays.copyOf(appearance, capacity);
+		order = new int[capacity];
+	}
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+/**
+ * The SpatialGrid class splits the screen into square cells, and remembers
+ * which objects are positioned within each cell. This lets the level find
+ * the objects near a position by looking at a few cells, instead of checking
+ * every object in the level. Objects are identified by their slot in an
+ * EntityStore.
+ * <br/><br/>
+ * Cell coordinates wrap around the edges of the screen the same way the taxi
+ * does, so every position (even one off the screen) belongs to some cell.
+ * A query may therefore return objects that are not actually close by, and
+ * callers should still check for collisions with each object it returns.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
+ */
+public class SpatialGrid {
+
+	// initialized variables
+	private float cellSize;
+	private int columns;
+	private int rows;
+	private int[][] cells;		// the slots in each cell
+	private int[] cellSizes;	// how many slots each cell holds
+	private int size;
+
+	/**
+	 * Initializes an empty grid covering a screen of the specified size.
+	 *
+	 * @param width is the width of the screen in pixels
+	 * @param height is the height of the screen in pixels
+	 * @param cellSize is the width and height of each cell in pixels
+	 */
+	public SpatialGrid(int width, int height, float cellSize) {
+		this.cellSize = cellSize;
+		this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		cells = new int[columns * rows][];
+		cellSizes = new int[columns * rows];
+	}
+
+	/**
+	 * Adds an object to the cell that contains the specified position.
+	 *
+	 * @param slot is the slot of the object being added
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 * @return void
+	 */
+	public void add(int slot, float x, float y) {
+		int cell = cellAt(x, y);
+		if (cells[cell] == null) {
+			cells[cell] = new int[2];
+		} else if (cellSizes[cell] == cells[cell].length) {
+			cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+		}
+		cells[cell][cellSizes[cell]++] = slot;
+		size++;
+	}
+
+	/**
+	 * Removes an object from the cell that contains the specified position,
+	 * which must be the same position that the object was added at.
+	 *
+	 * @param slot is the slot of the object being removed
+	 * @param x is the horizontal position the object was added at
+	 * @param y is the vertical position the object was added at
+	 * @return true when the object was found and removed, otherwise false
+	 */
+	public boolean remove(int slot, float x, float y) {
+		int cell = cellAt(x, y);
+		int index = indexOf(cell, slot);
+		if (index < 0) {
+			return false;
+		}
+		// the order within a cell does not matter
+		cells[cell][index] = cells[cell][--cellSizes[cell]];
+		size--;
+		return true;
+	}
+
+	/**
+	 * Changes the slot that an object is remembered by, for when it has been
+	 * moved to a different slot of its EntityStore.
+	 *
+	 * @param oldSlot is the slot the object was added with
+	 * @param newSlot is the slot the object is now in
+	 * @param x is the horizontal position the object was added at
+	 * @param y is the vertical position the object was added at
+	 * @return true when the object was found, otherwise false
+	 */
+	public boolean move(int oldSlot, int newSlot, float x, float y) {
+		int cell = cellAt(x, y);
+		int index = indexOf(cell, oldSlot);
+		if (index < 0) {
+			return false;
+		}
+		cells[cell][index] = newSlot;
+		return true;
+	}
+
+	/**
+	 * Collects every object in the cells that overlap the square around the
+	 * specified position. The results are added to the end of the list.
+	 *
+	 * @param x is the horizontal position at the center of the query
+	 * @param y is the vertical position at the center of the query
+	 * @param radius is the largest distance an object can be from the center
+	 * and still be of interest
+	 * @param results is the list that the slots of nearby objects are
+	 * added to
+	 * @return void
+	 */
+	public void query(float x, float y, float radius, IntList results) {
+		int firstColumn = (int) Math.floor((x - radius) / cellSize);
+		int lastColumn = (int) Math.floor((x + radius) / cellSize);
+		int firstRow = (int) Math.floor((y - radius) / cellSize);
+		int lastRow = (int) Math.floor((y + radius) / cellSize);
+		// never visit the same wrapped cell twice
+		if (lastColumn - firstColumn >= columns) {
+			lastColumn = firstColumn + columns - 1;
+		}
+		if (lastRow - firstRow >= rows) {
+			lastRow = firstRow + rows - 1;
+		}
+		for (int row = firstRow; row <= lastRow; row++) {
+			int wrappedRow = wrap(row, rows);
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = wrappedRow * columns + wrap(column, columns);
+				for (int i = 0; i < cellSizes[cell]; i++) {
+					results.add(cells[cell][i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every object from this grid, keeping its cells' arrays.
+	 *
+	 * @return void
+	 */
+	public void clear() {
+		Arrays.fill(cellSizes, 0);
+		size = 0;
+	}
+
+	/**
+	 * This accessor retrieves the number of objects in this grid.
+	 *
+	 * @return the number of objects that have been added and not removed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds where a slot is kept within a cell.
+	 *
+	 * @param cell is the index of the cell
+	 * @param slot is the slot being looked for
+	 * @return the index of the slot within the cell, or -1 if it isn't there
+	 */
+	private int indexOf(int cell, int slot) {
+		for (int i = 0; i < cellSizes[cell]; i++) {
+			if (cells[cell][i] == slot) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the index of the cell that contains the specified position.
+	 *
+	 * @param x is the horizontal position
+	 * @param y is the vertical position
+	 * @return the index of the cell in the cells list
+	 */
+	private int cellAt(float x, float y) {
+		int column = wrap((int) Math.floor(x / cellSize), columns);
+		int row = wrap((int) Math.floor(y / cellSize), rows);
+		return row * columns + column;
+	}
+
+	/**
+	 * Wraps a cell coordinate around the edge of the grid.
+	 *
+	 * @param coordinate is the cell coordinate, which may be out of range
+	 * @param count is the number of cells along this edge of the grid
+	 * @return the coordinate wrapped into the range 0 to count - 1
+	 */
+	private static int wrap(int coordinate, int count) {
+		int wrapped = coordinate % count;
+		return wrapped < 0 ? wrapped + count : wrapped;
+	}
+}
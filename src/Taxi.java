@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * The Taxi class has its own methods which are called in various classes
  * in the program. These methods include the constructor which constructs
@@ -11,12 +13,21 @@
 public class Taxi {
 
 	// initialize variables
-	public Graphic graphic;
+	public Body body;
 	private float thrusterSpeed;
 	private float fuel;
 	private float warpSpeed; 			// initialized to 0.2f
 	private boolean isTravellingAtWarp; // initialized to false
 	private boolean hasCrashed = false;
+	private float previousX;			// position before the last update
+	private float previousY;
+	private float moveX;				// how far the last update moved the
+	private float moveY;				// taxi, before wrapping around
+	private int wrapX;					// screens the last update wrapped
+	private int wrapY;					// the taxi right and down
+
+	// bytes written by writeState()
+	public static final int STATE_SIZE = 3 * 4 + 5 * 4 + 3;
 
 	/**
 	 * Initialized all fields of the new taxi object so that it will appear 
@@ -28,8 +39,10 @@ public class Taxi {
 	public Taxi(float x, float y) {
 		warpSpeed = 0.2f;
 		thrusterSpeed = 0.01f;
-		graphic = new Graphic("TAXI");
-		graphic.setPosition(x,y);
+		body = new Body(Appearance.TAXI);
+		body.setPosition(x,y);
+		previousX = x;
+		previousY = y;
 		fuel = 30;
 	}
 
@@ -41,73 +54,227 @@ public class Taxi {
 	 * or has crashed into a planet, they should not move at all.
 	 *
 	 * @param time in milliseconds is used to move taxi at the correct speed
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @param input is the player's keyboard and mouse for this update
 	 * @return true when the player has (either crashed or run out of fuel) 
 	 * and also pressed the space bar to acknowledge that they are done 
 	 * playing, in all other cases this method should return false	 
 	 */
-	public boolean update(int time) {
-		graphic.draw();
+	public boolean update(int time, int width, int height,
+			InputSnapshot input) {
+		previousX = body.getX();
+		previousY = body.getY();
 		if(fuel > 0) {
 			// if taxi the taxi is traveling at warp, update the position of taxi
 			if (isTravellingAtWarp) {
-				graphic.setPosition(graphic.getX() + warpSpeed*time * graphic.getDirectionX(), 
-						graphic.getY() + warpSpeed*time * graphic.getDirectionY());
+				body.setPosition(body.getX() + warpSpeed*time * body.getDirectionX(), 
+						body.getY() + warpSpeed*time * body.getDirectionY());
 			}
 			// controls the movement of the taxi depending on which keys are pressed
-			if (GameEngine.isKeyHeld("D") || GameEngine.isKeyHeld("RIGHT")) {
+			if (input.isHeld(InputSnapshot.Key.RIGHT)) {
 				// sets a new x position of taxi
-				graphic.setX(graphic.getX() + thrusterSpeed * time);
+				body.setX(body.getX() + thrusterSpeed * time);
 				// changes the direction the taxi is facing
-				graphic.setDirection(0);
+				body.setDirection(0);
 				// fuel is lowered from the movement of the taxi
 				fuel = fuel - (thrusterSpeed *time);
 				// stops the traveling at warp speed when key is pressed
 				isTravellingAtWarp = false;
 			}
-			if (GameEngine.isKeyHeld("A") || GameEngine.isKeyHeld("LEFT")) {
-				graphic.setX(graphic.getX() - thrusterSpeed * time);
-				graphic.setDirection((float) (Math.PI));
+			if (input.isHeld(InputSnapshot.Key.LEFT)) {
+				body.setX(body.getX() - thrusterSpeed * time);
+				body.setDirection((float) (Math.PI));
 				fuel = fuel - (thrusterSpeed *time);
 				isTravellingAtWarp = false;
 			}
-			if (GameEngine.isKeyHeld("W") || GameEngine.isKeyHeld("UP")) {
-				graphic.setY(graphic.getY() - thrusterSpeed * time);
-				graphic.setDirection((float) (Math.PI/2));
+			if (input.isHeld(InputSnapshot.Key.UP)) {
+				body.setY(body.getY() - thrusterSpeed * time);
+				body.setDirection((float) (Math.PI/2));
 				fuel = fuel - (thrusterSpeed *time);
 				isTravellingAtWarp = false;
 			}
-			if (GameEngine.isKeyHeld("S") || GameEngine.isKeyHeld("DOWN")) {
-				graphic.setY(graphic.getY() + thrusterSpeed * time);
-				graphic.setDirection((float) ((3*Math.PI)/2));
+			if (input.isHeld(InputSnapshot.Key.DOWN)) {
+				body.setY(body.getY() + thrusterSpeed * time);
+				body.setDirection((float) ((3*Math.PI)/2));
 				fuel = fuel - (thrusterSpeed *time);
 				isTravellingAtWarp = false;
 			}
 		}
 
-		// wraps the position of the taxi if the taxi goes off the screen
-		if (graphic.getX() > GameEngine.getWidth()) {
-			graphic.setX(graphic.getX()-GameEngine.getWidth());
-		}
-		if (graphic.getX() < 0) {
-			graphic.setX(GameEngine.getWidth()-graphic.getX());
-		}
-		if (graphic.getY() > GameEngine.getHeight()) {
-			graphic.setY(graphic.getY()-GameEngine.getHeight());
-		}
-		if (graphic.getY() < 0) {
-			graphic.setY(GameEngine.getHeight()-graphic.getY());
-		}
+		moveX = body.getX() - previousX;
+		moveY = body.getY() - previousY;
+		wrap(width, height);
 
 		// if the user has lost by fuel depletion or crashing, waits for the user
 		// to press space to display the "YOU LOST" message.
 		if (fuel <= 0 || hasCrashed) {
-			if (GameEngine.isKeyPressed("SPACE")) {
+			if (input.isPressed(InputSnapshot.Key.SPACE)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * This method wraps the position of the taxi if the taxi goes off the
+	 * screen, bringing it back in by one screen at the opposite edge, so
+	 * that crossing an edge once wraps it exactly once.
+	 *
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return void
+	 */
+	private void wrap(int width, int height) {
+		wrapX = 0;
+		wrapY = 0;
+		if (body.getX() > width) {
+			body.setX(body.getX()-width);
+			wrapX = 1;
+		}
+		if (body.getX() < 0) {
+			body.setX(body.getX()+width);
+			wrapX = -1;
+		}
+		if (body.getY() > height) {
+			body.setY(body.getY()-height);
+			wrapY = 1;
+		}
+		if (body.getY() < 0) {
+			body.setY(body.getY()+height);
+			wrapY = -1;
+		}
+	}
+
+	/**
+	 * This method finds where the taxi's last update first brought it into
+	 * contact with an object, checking the whole straight path from where
+	 * the taxi was to where it is now. Unlike checkCollision(), it can't
+	 * miss an object that a long update jumped over.
+	 *
+	 * @param x is the horizontal position of the object
+	 * @param y is the vertical position of the object
+	 * @param size is the collision size of the object
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return how far along the last update's move the taxi first touched
+	 * the object, from just after 0 to 1, or -1 when it never did
+	 */
+	public float findContact(float x, float y, float size, int width,
+			int height) {
+		return Body.findContact(previousX, previousY, moveX, moveY, x, y,
+				(body.getSize() + size) / 2, width, height);
+	}
+
+	/**
+	 * This method collects the objects in a grid that the taxi's last
+	 * update may have touched anywhere along its path, or where it ended up
+	 * after wrapping around an edge of the screen.
+	 *
+	 * @param grid is the grid of objects
+	 * @param size is the largest collision size of the objects
+	 * @param results is the list that the slots of those objects are
+	 * added to, from smallest to largest and each only once
+	 * @return void
+	 */
+	public void queryPath(SpatialGrid grid, float size, IntList results) {
+		float reach = (body.getSize() + size) / 2;
+		float length = (float) Math.sqrt(moveX * moveX + moveY * moveY);
+		grid.query(previousX + moveX / 2, previousY + moveY / 2,
+				length / 2 + reach, results);
+		// the grid's cells don't wrap exactly at the edges of the screen, so
+		// a wrapped taxi also looks where it is now
+		if (body.getX() != previousX + moveX
+				|| body.getY() != previousY + moveY) {
+			grid.query(body.getX(), body.getY(), reach, results);
+		}
+		results.sort();
+		results.removeDuplicates();
+	}
+
+	/**
+	 * This method moves the taxi back along its last update's path, to
+	 * where it first touched something it can't pass through.
+	 *
+	 * @param contact is how far along the path to stop, from 0 to 1
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return void
+	 */
+	public void stopAt(float contact, int width, int height) {
+		moveX *= contact;
+		moveY *= contact;
+		body.setPosition(previousX + moveX, previousY + moveY);
+		wrap(width, height);
+	}
+
+	/**
+	 * This method writes everything about the taxi that changes while it
+	 * flies, so that readState() can put the taxi back exactly as it was.
+	 *
+	 * @param buffer is where the STATE_SIZE bytes of state are written
+	 * @return void
+	 */
+	public void writeState(ByteBuffer buffer) {
+		body.writeState(buffer);
+		buffer.putFloat(fuel);
+		buffer.putFloat(previousX);
+		buffer.putFloat(previousY);
+		buffer.putFloat(moveX);
+		buffer.putFloat(moveY);
+		buffer.put((byte) ((isTravellingAtWarp ? 1 : 0) | (hasCrashed ? 2 : 0)));
+		buffer.put((byte) wrapX);
+		buffer.put((byte) wrapY);
+	}
+
+	/**
+	 * This method puts the taxi back in a state written by writeState(),
+	 * along with the appearance that goes with it.
+	 *
+	 * @param buffer is where the state is read from
+	 * @return void
+	 */
+	public void readState(ByteBuffer buffer) {
+		body.readState(buffer);
+		fuel = buffer.getFloat();
+		previousX = buffer.getFloat();
+		previousY = buffer.getFloat();
+		moveX = buffer.getFloat();
+		moveY = buffer.getFloat();
+		byte flags = buffer.get();
+		isTravellingAtWarp = (flags & 1) != 0;
+		hasCrashed = (flags & 2) != 0;
+		wrapX = buffer.get();
+		wrapY = buffer.get();
+		body.setAppearance(hasCrashed ? Appearance.EXPLOSION : Appearance.TAXI);
+	}
+
+	/**
+	 * This method draws the taxi part of the way from where it was before
+	 * the last update to where it is now, so that it moves smoothly even
+	 * when the screen is drawn more often than the taxi is updated. The
+	 * taxi is added to a RenderQueue, which draws it with the rest of the
+	 * frame.
+	 *
+	 * @param queue is the queue of the frame being drawn
+	 * @param alpha is how far to go from the previous position (0) to the
+	 * current position (1)
+	 * @param width is the width of the screen that the taxi wraps around
+	 * @param height is the height of the screen that the taxi wraps around
+	 * @return void
+	 */
+	public void draw(RenderQueue queue, float alpha, int width, int height) {
+		float x = body.getX();
+		float y = body.getY();
+		float dx = x - previousX;
+		float dy = y - previousY;
+		// doesn't slide across the whole screen when the taxi wraps around
+		if (Math.abs(dx) <= width / 2 && Math.abs(dy) <= height / 2) {
+			x = previousX + dx * alpha;
+			y = previousY + dy * alpha;
+		}
+		queue.add(body.getAppearance().getId(), x, y, body.getDirection());
+	}
 
 	/**
 	 * This accessor method retrieves a taxi object's fuel level.
@@ -118,6 +285,47 @@ public class Taxi {
 		return this.fuel;
 	}
 
+	/**
+	 * This accessor retrieves how fast this taxi moves while its thrusters
+	 * are used, which is also how fast they burn fuel.
+	 *
+	 * @return the thruster speed in pixels per millisecond
+	 */
+	public float getThrusterSpeed() {
+		return thrusterSpeed;
+	}
+
+	/**
+	 * This accessor retrieves which way the last update wrapped the taxi
+	 * across the left or right edge of the screen.
+	 *
+	 * @return 1 when it went off the right edge, -1 when it went off the
+	 * left edge, otherwise 0
+	 */
+	public int getWrapX() {
+		return wrapX;
+	}
+
+	/**
+	 * This accessor retrieves which way the last update wrapped the taxi
+	 * across the top or bottom edge of the screen.
+	 *
+	 * @return 1 when it went off the bottom edge, -1 when it went off the
+	 * top edge, otherwise 0
+	 */
+	public int getWrapY() {
+		return wrapY;
+	}
+
+	/**
+	 * This accessor retrieves how fast this taxi moves at warp speed.
+	 *
+	 * @return the warp speed in pixels per millisecond
+	 */
+	public float getWarpSpeed() {
+		return warpSpeed;
+	}
+
 	/**
 	 * This method increments a taxi's fuel level by the specified amount.
 	 *
@@ -137,7 +345,7 @@ public class Taxi {
 	 * @return void
 	 */
 	public void setWarp(float x, float y) {
-		graphic.setDirection(x, y);
+		body.setDirection(x, y);
 		isTravellingAtWarp = true;
 	}
 
@@ -151,7 +359,7 @@ public class Taxi {
 	}
 
 	/**
-	 * This method changes the appearance of this taxi's graphic to EXPLOSION
+	 * This method changes the appearance of this taxi's body to EXPLOSION
 	 *  and also changes this object's state to be crashed which effects the 
 	 *  ship's movement among other things.
 	 *
@@ -159,7 +367,7 @@ public class Taxi {
 	 */
 	public void crash() {
 		hasCrashed = true;
-		graphic.setAppearance("EXPLOSION");	// changes graphic from 
+		body.setAppearance(Appearance.EXPLOSION);	// changes graphic from 
 		// planet to explosion
 		this.fuel = 0;	// changes the fuel to 0 for no movement
 	}
@@ -174,18 +382,16 @@ public class Taxi {
 	}
 
 	/**
-	 * Determines whether this taxi object's graphic is overlapping with 
-	 * the graphic of another object in the game.
+	 * Determines whether this taxi object's body is overlapping with an
+	 * object kept in an EntityStore.
 	 *
-	 * @param other is the graphic to check for a collision against
-	 * @return true when other overlaps with this taxi's graphic, else false
+	 * @param x is the horizontal position of the other object
+	 * @param y is the vertical position of the other object
+	 * @param size is the collision size of the other object
+	 * @return true when the object overlaps with this taxi's body, else false
 	 */
-	public boolean checkCollision(Graphic other) {
-		if (graphic.isCollidingWith(other)) {
-			return true;
-		} else {
-			return false;
-		}
+	public boolean checkCollision(float x, float y, float size) {
+		return body.isCollidingWith(x, y, size);
 	}
 
 }
@@ -1,55 +1,83 @@
 /**
  * The WarpStar class has its own methods which are called in the level
- * class. These methods include the constructor which constructs the graphic
- * image of the Warpstar and implements its abilities in the game.
- * 
- * Bugs: (None that I'm aware of!) 
- * 
- * @author Susie C. and Krishna P. 
+ * class. The warp stars themselves are kept in an EntityStore, and these
+ * methods add them to a store and implement their abilities in the game.
+ *
+ * Bugs: (None that I'm aware of!)
+ *
+ * @author Susie C. and Krishna P.
  */
 public class WarpStar {
 
-	private Graphic graphic;	// initializes graphic object
-
 	/**
-	 * Initializes a new WarpStar object to show up at the specified position.
+	 * Adds a new warp star to show up at the specified position.
 	 *
+	 * @param warpStars is the store that the new warp star is added to
 	 * @param x is the horizontal position of the newly created warp star.
 	 * @param y is the vertical position of the newly created warp star.
+	 * @return the slot of the new warp star in the store
 	 */
-	public WarpStar(float x, float y) { 
-		graphic = new Graphic("WARP_STAR"); // creates Warpstar object/image
-		graphic.setPosition(x,y);
+	public static int add(EntityStore warpStars, float x, float y) {
+		return warpStars.add(EntityStore.WARP_STAR, x, y, 0);
 	}
 
 	/**
-	 * Draws this WarpStar object at its current position.
+	 * Finds the warp star that the player clicked on. Only the warp stars
+	 * that the grid holds near the click are checked, and when several of
+	 * them overlap the one drawn last (on top) is picked.
 	 *
-	 * @param args is not used by this program
-	 * @return void
+	 * @param warpStars is the store that holds the warp stars
+	 * @param grid holds the slot of every warp star by its position
+	 * @param x is the horizontal position the player clicked at
+	 * @param y is the vertical position the player clicked at
+	 * @param nearby is a list to reuse for the warp stars near the click
+	 * @return the slot of the clicked warp star, or -1 when there is none
 	 */
-	public void update() {
-		graphic.draw();
-	}	
+	public static int pick(EntityStore warpStars, SpatialGrid grid, float x,
+			float y, IntList nearby) {
+		nearby.clear();
+		grid.query(x, y, EntityStore.WARP_STAR_SIZE / 2, nearby);
+		int topmost = -1;
+		for (int i = 0; i < nearby.size(); i++) {
+			int slot = nearby.get(i);
+			if (slot > topmost && isCoveringPosition(warpStars, slot, x, y)) {
+				topmost = slot;
+			}
+		}
+		return topmost;
+	}
 
 	/**
-	 * This method detects whether both 1) the player's taxi has fuel, 
-	 * and 2) the player is clicking on this WarpStar object. When both 
-	 * are detected this method sets the taxi to travel at warp speed 
-	 * toward this WarpStar.
+	 * This method handles the player clicking on a warp star. When the
+	 * player's taxi has fuel, this method sets the taxi to travel at warp
+	 * speed toward that star.
 	 *
+	 * @param warpStars is the store that holds the warp star
+	 * @param slot is the slot of the clicked warp star in the store
 	 * @param taxi takes in the taxi object to handle the taxi's navigation
 	 * @return void
 	 */
-	public void handleNavigation(Taxi taxi) {
-		if (GameEngine.isKeyPressed("MOUSE") && graphic.isCoveringPosition
-				(GameEngine.getMouseX(), GameEngine.getMouseY()) ) {
-			if( taxi.getFuel() > 0) {
-				taxi.setWarp(graphic.getX(), graphic.getY());
-			}
+	public static void handleNavigation(EntityStore warpStars, int slot,
+			Taxi taxi) {
+		if( taxi.getFuel() > 0) {
+			taxi.setWarp(warpStars.x[slot], warpStars.y[slot]);
 		}
 	}
-}
-
-
 
+	/**
+	 * Determines whether a warp star covers the specified position.
+	 *
+	 * @param warpStars is the store that holds the warp star
+	 * @param slot is the slot of the warp star in the store
+	 * @param x is the horizontal coordinate of the position
+	 * @param y is the vertical coordinate of the position
+	 * @return true when the position is on the warp star, otherwise false
+	 */
+	public static boolean isCoveringPosition(EntityStore warpStars, int slot,
+			float x, float y) {
+		float dx = warpStars.x[slot] - x;
+		float dy = warpStars.y[slot] - y;
+		float radius = EntityStore.WARP_STAR_SIZE / 2;
+		return dx * dx + dy * dy <= radius * radius;
+	}
+}